@@ -0,0 +1,32 @@
+package com.groupshare.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.groupshare.Utils.Constants;
+
+/**
+ * Membership checks against {@link Constants#ALLOWED_TYPES}, run for every
+ * upload and every finalized presigned upload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AllowedTypesBenchmark {
+
+    // Two hits and a miss
+    @Param({ "image/jpeg", "application/x-7z-compressed", "application/x-msdownload" })
+    public String mimeType;
+
+    @Benchmark
+    public boolean contains() {
+        return Constants.ALLOWED_TYPES.contains(mimeType);
+    }
+}
@@ -0,0 +1,78 @@
+package com.groupshare.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.groupshare.Utils.FileValidator;
+
+/**
+ * Tika detection as the upload path runs it. Only a prefix is inspected, so
+ * the size parameter shows whether cost stays flat as files grow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FileValidatorBenchmark {
+
+    @Param({ "text", "png", "pdf", "jpeg", "binary" })
+    public String fileType;
+
+    @Param({ "1024", "1048576" })
+    public int size;
+
+    private byte[] content;
+
+    @Setup
+    public void createContent() throws Exception {
+        byte[] header = switch (fileType) {
+            case "text" -> "plain text line\n".getBytes(StandardCharsets.US_ASCII);
+            case "png" -> png();
+            case "pdf" -> "%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII);
+            case "jpeg" -> new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0 };
+            case "binary" -> new byte[0];
+            default -> throw new IllegalArgumentException(fileType);
+        };
+
+        content = new byte[Math.max(size, header.length)];
+        if (fileType.equals("text")) {
+            for (int i = 0; i < content.length; i++) {
+                content[i] = header[i % header.length];
+            }
+        } else {
+            new Random(42).nextBytes(content);
+            System.arraycopy(header, 0, content, 0, header.length);
+        }
+    }
+
+    @Benchmark
+    public boolean isAllowed() throws Exception {
+        return FileValidator.isAllowed(new ByteArrayInputStream(content));
+    }
+
+    @Benchmark
+    public String getFileType() throws Exception {
+        return FileValidator.getFileType(new ByteArrayInputStream(content));
+    }
+
+    private static byte[] png() throws Exception {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,73 @@
+package com.groupshare.benchmarks;
+
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.groupshare.DTOs.OutputResponseGetMedia;
+import com.groupshare.DTOs.OutputResponseMedia;
+import com.groupshare.Entitys.Media;
+
+/**
+ * The part of the listing endpoint after the query: mapping rows to DTOs and
+ * writing the JSON body. The mapper is configured the way Spring Boot's is.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MediaListingBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int entries;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private UUID albumId;
+    private List<Media> rows;
+    private OutputResponseGetMedia response;
+
+    @Setup
+    public void createRows() {
+        albumId = UUID.randomUUID();
+        Instant uploadedAt = Instant.parse("2025-01-01T00:00:00Z");
+        rows = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            rows.add(new Media(UUID.randomUUID(), albumId, "photo_" + i + ".jpg", "image/jpeg",
+                    1024L * (i + 1), uploadedAt.plusMillis(i), "0".repeat(64)));
+        }
+        response = map();
+    }
+
+    @Benchmark
+    public OutputResponseGetMedia map() {
+        List<OutputResponseMedia> media = new ArrayList<>(rows.size());
+        for (Media row : rows) {
+            media.add(new OutputResponseMedia(row));
+        }
+        return new OutputResponseGetMedia(albumId, media, "next");
+    }
+
+    @Benchmark
+    public void serialize() throws Exception {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), response);
+    }
+
+    @Benchmark
+    public void mapAndSerialize() throws Exception {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), map());
+    }
+}
@@ -0,0 +1,77 @@
+package com.groupshare.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.groupshare.Entitys.Media;
+import com.groupshare.Storage.InMemoryStorageBackend;
+import com.groupshare.Utils.ByteRange;
+import com.groupshare.Utils.UploadPipeline;
+
+/**
+ * Upload and download as {@code RestApiRoute} drives them, against the
+ * in-memory backend so only the application's own copying, sniffing and
+ * hashing are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StorageRoundTripBenchmark {
+
+    private static final String BUCKET = "benchmark";
+
+    @Param({ "4096", "1048576", "16777216" })
+    public int size;
+
+    private final InMemoryStorageBackend storageBackend = new InMemoryStorageBackend();
+
+    private byte[] content;
+    private Media media;
+
+    @Setup
+    public void createObject() throws Exception {
+        content = new byte[size];
+        new Random(42).nextBytes(content);
+        // JPEG magic, so the sniffed type is an allowed one
+        content[0] = (byte) 0xFF;
+        content[1] = (byte) 0xD8;
+        content[2] = (byte) 0xFF;
+        content[3] = (byte) 0xE0;
+
+        media = new Media(UUID.randomUUID(), UUID.randomUUID(), "benchmark.jpg", "image/jpeg", (long) size,
+                Instant.now(), null);
+        storageBackend.createBucket(BUCKET);
+        storageBackend.put(BUCKET, media.getId().toString(), media, new ByteArrayInputStream(content));
+    }
+
+    @Benchmark
+    public String upload() throws Exception {
+        try (UploadPipeline pipeline = new UploadPipeline(new ByteArrayInputStream(content))) {
+            pipeline.detectType();
+            // Same key every time, so the heap holds one copy
+            storageBackend.put(BUCKET, media.getId().toString(), media, pipeline.stream());
+            return pipeline.hash();
+        }
+    }
+
+    @Benchmark
+    public long download() throws Exception {
+        try (InputStream stream = storageBackend.get(BUCKET, media.getId().toString(), ByteRange.full(size))) {
+            return stream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
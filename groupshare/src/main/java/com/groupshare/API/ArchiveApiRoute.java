@@ -0,0 +1,231 @@
+package com.groupshare.API;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.groupshare.DTOs.InputRequestMediaArchive;
+import com.groupshare.Entitys.Album;
+import com.groupshare.Entitys.AlbumRepository;
+import com.groupshare.Entitys.Media;
+import com.groupshare.Entitys.MediaRepository;
+import com.groupshare.Services.MetadataCache;
+import com.groupshare.Services.StorageCodec;
+import com.groupshare.Services.StorageLayout;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Utils.ByteRange;
+import com.groupshare.Utils.Constants;
+import com.groupshare.Utils.ZipStreamWriter;
+
+/**
+ * Streams ZIP archives of media straight from storage. Nothing is buffered
+ * beyond one copy buffer, and the next object is opened while the current one
+ * is still being written, so the time to first byte of each object overlaps
+ * with the transfer of the previous one.
+ */
+@RestController
+@RequestMapping("/api")
+public class ArchiveApiRoute {
+
+    // Album archives read the media rows in pages instead of all at once.
+    private static final int PAGE_SIZE = 1000;
+
+    @Value("${groupshare.archive.max-ids:1000}")
+    private int archiveMaxIds;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private MediaRepository mediaRepository;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Autowired
+    private StorageLayout storageLayout;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private StorageCodec storageCodec;
+
+    @GetMapping("albums/{albumId}/archive")
+    public ResponseEntity<StreamingResponseBody> downloadAlbumArchive(@PathVariable UUID albumId) {
+        Album album = metadataCache.findAlbum(albumId);
+        if (album == null) {
+            return ResponseEntity.status(404).build();
+        }
+
+        Map<UUID, Album> albums = Map.of(albumId, album);
+        return archive(album.getName() + ".zip", () -> albumMedia(albumId), albums);
+    }
+
+    @PostMapping("media/archive")
+    public ResponseEntity<StreamingResponseBody> downloadMediaArchive(@RequestBody InputRequestMediaArchive request) {
+        if (request.getMediaIds() == null || request.getMediaIds().isEmpty()
+                || request.getMediaIds().size() > archiveMaxIds) {
+            return ResponseEntity.status(400).build();
+        }
+
+        // Keep the caller's order; media of deleted albums are left out
+        Map<UUID, Media> found = new HashMap<>();
+        for (Media media : mediaRepository.findLiveByIdIn(new LinkedHashSet<>(request.getMediaIds()))) {
+            found.put(media.getId(), media);
+        }
+        List<Media> selection = new ArrayList<>();
+        for (UUID mediaId : new LinkedHashSet<>(request.getMediaIds())) {
+            if (found.containsKey(mediaId)) {
+                selection.add(found.get(mediaId));
+            }
+        }
+        if (selection.isEmpty()) {
+            return ResponseEntity.status(404).build();
+        }
+
+        Set<UUID> albumIds = new HashSet<>();
+        for (Media media : selection) {
+            albumIds.add(media.getAlbumId());
+        }
+        Map<UUID, Album> albums = new HashMap<>();
+        for (Album album : albumRepository.findAllById(albumIds)) {
+            albums.put(album.getId(), album);
+        }
+        return archive("media.zip", selection::iterator, albums);
+    }
+
+    private ResponseEntity<StreamingResponseBody> archive(String fileName, Iterable<Media> media,
+            Map<UUID, Album> albums) {
+        StreamingResponseBody body = out -> {
+            Set<String> usedNames = new HashSet<>();
+            Future<InputStream> next = null;
+            try (ExecutorService prefetcher = Executors.newVirtualThreadPerTaskExecutor();
+                    ZipStreamWriter zip = new ZipStreamWriter(out)) {
+                Iterator<Media> items = media.iterator();
+                Media current = items.hasNext() ? items.next() : null;
+                next = current == null ? null : prefetcher.submit(open(current, albums));
+                while (current != null) {
+                    Future<InputStream> opening = next;
+                    Media following = items.hasNext() ? items.next() : null;
+                    next = following == null ? null : prefetcher.submit(open(following, albums));
+
+                    try (InputStream content = opening.get()) {
+                        zip.writeEntry(entryName(current.getFileName(), usedNames), current.getUploadedAt(),
+                                current.getFileSize(), Constants.COMPRESSIBLE_TYPES.contains(current.getFileType()),
+                                content);
+                    }
+                    current = following;
+                }
+                zip.finish();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Archive interrupted", e);
+            } catch (ExecutionException e) {
+                // The status line is long gone; all that is left is to cut the archive short
+                throw new IllegalStateException("Error opening archive entry", e.getCause());
+            } finally {
+                closeQuietly(next);
+            }
+        };
+
+        return ResponseEntity.status(200)
+                .header("Content-Type", "application/zip")
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString())
+                .body(body);
+    }
+
+    private Callable<InputStream> open(Media media, Map<UUID, Album> albums) {
+        Album album = albums.get(media.getAlbumId());
+        return () -> storageCodec.decode(media, storageBackend.get(storageLayout.bucketOf(album),
+                storageLayout.objectNameOf(album, media.getId()), ByteRange.full(media.storedBytes())));
+    }
+
+    /**
+     * Walks the album with the same keyset pages as the listing endpoint, so
+     * archives of any size only hold one page of rows.
+     */
+    private Iterator<Media> albumMedia(UUID albumId) {
+        return new Iterator<>() {
+            private List<Media> page = mediaRepository.findFirstPage(albumId, PAGE_SIZE);
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                if (index == page.size() && page.size() == PAGE_SIZE) {
+                    Media last = page.get(page.size() - 1);
+                    page = mediaRepository.findPageAfter(albumId, last.getUploadedAt(), last.getId(), PAGE_SIZE);
+                    index = 0;
+                }
+                return index < page.size();
+            }
+
+            @Override
+            public Media next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(index++);
+            }
+        };
+    }
+
+    /**
+     * File names are flat and unique per album, but a selection can span
+     * albums, so clashes get a " (n)" suffix before the extension.
+     */
+    private static String entryName(String fileName, Set<String> usedNames) {
+        String name = fileName.replace('/', '_').replace('\\', '_');
+        if (usedNames.add(name)) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int n = 1;; n++) {
+            String candidate = base + " (" + n + ")" + extension;
+            if (usedNames.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    private static void closeQuietly(Future<InputStream> pending) {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get().close();
+        } catch (Exception e) {
+            // Nothing was opened, or closing failed; either way it is released
+        }
+    }
+}
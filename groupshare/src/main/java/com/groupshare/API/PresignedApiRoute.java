@@ -0,0 +1,273 @@
+package com.groupshare.API;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.groupshare.DTOs.InputRequestPresignedUpload;
+import com.groupshare.DTOs.OutputResponseMedia;
+import com.groupshare.DTOs.OutputResponsePresignedDownload;
+import com.groupshare.DTOs.OutputResponsePresignedUpload;
+import com.groupshare.Entitys.Album;
+import com.groupshare.Entitys.AlbumRepository;
+import com.groupshare.Entitys.Media;
+import com.groupshare.Entitys.MediaRepository;
+import com.groupshare.Entitys.PresignedUpload;
+import com.groupshare.Entitys.PresignedUploadRepository;
+import com.groupshare.Entitys.UploadSessionRepository;
+import com.groupshare.Services.MetadataCache;
+import com.groupshare.Services.PreviewGenerator;
+import com.groupshare.Services.StorageCodec;
+import com.groupshare.Services.StorageLayout;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Storage.StoredObject;
+import com.groupshare.Utils.ByteRange;
+import com.groupshare.Utils.Constants;
+import com.groupshare.Utils.UploadPipeline;
+
+/**
+ * Direct-to-storage transfers: clients get a time-limited URL and move the
+ * bytes to or from storage themselves, the application only handles
+ * metadata. An upload only becomes a {@link Media} row once it is finalized
+ * and the stored object has been checked.
+ */
+@RestController
+@RequestMapping("/api")
+public class PresignedApiRoute {
+
+    @Value("${groupshare.presigned.expiry:PT15M}")
+    private Duration expiry;
+
+    // A presigned PUT is a single request, which S3 caps at 5 GiB.
+    @Value("${groupshare.presigned.max-size:5GB}")
+    private DataSize maxSize;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private MediaRepository mediaRepository;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private PresignedUploadRepository presignedUploadRepository;
+
+    @Autowired
+    private StorageLayout storageLayout;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private PreviewGenerator previewGenerator;
+
+    @PostMapping("albums/{albumId}/presigned-uploads")
+    public ResponseEntity<OutputResponsePresignedUpload> createPresignedUpload(@PathVariable UUID albumId,
+            @RequestBody InputRequestPresignedUpload request) throws Exception {
+
+        if (request.getFileName() == null || request.getFileName().isBlank() || request.getFileSize() == null
+                || request.getFileSize() <= 0) {
+            return ResponseEntity.status(400).build();
+        }
+        if (request.getFileSize() > maxSize.toBytes()) {
+            return ResponseEntity.status(413).build(); // Payload Too Large
+        }
+
+        Album album = metadataCache.findAlbum(albumId);
+        if (album == null || !storageLayout.isProvisioned(album)) {
+            return ResponseEntity.status(400).build();
+        }
+
+        if (!Constants.ALLOWED_TYPES.contains(request.getFileType())) {
+            return ResponseEntity.status(415).build(); // Unsupported Media Type
+        }
+
+        if (isTaken(albumId, request.getFileName())) {
+            return ResponseEntity.status(409).build(); // Conflict
+        }
+
+        UUID uploadId = UUID.randomUUID();
+        UUID mediaId = UUID.randomUUID();
+        String bucketName = storageLayout.bucketOf(album);
+        String stagingObjectName = storageLayout.stagingObjectNameOf(album, uploadId);
+        String url;
+        try {
+            url = storageBackend.presignPut(bucketName, stagingObjectName, expiry);
+        } catch (UnsupportedOperationException e) {
+            return ResponseEntity.status(501).build(); // Not Implemented
+        }
+
+        Instant now = Instant.now();
+        PresignedUpload upload = new PresignedUpload(uploadId, albumId, mediaId, request.getFileName(),
+                request.getFileType(), request.getFileSize(), request.getMd5(), bucketName,
+                storageLayout.objectNameOf(album, mediaId), stagingObjectName, now, now.plus(expiry));
+        presignedUploadRepository.save(upload);
+
+        return ResponseEntity.status(201).body(new OutputResponsePresignedUpload(upload.getId(),
+                upload.getFileName(), url, upload.getExpiresAt()));
+    }
+
+    /**
+     * Checks what the client actually stored. The staging object is first
+     * copied server-side to its final key, which the URL cannot write, so the
+     * checks cover exactly the bytes that are kept: the size must match the
+     * announcement, the sniffed type must be allowed and, when an MD5 was
+     * announced, it must match the ETag. The copy is read once to sniff and
+     * hash it, like any other upload. The row is claimed with a conditional
+     * update first, so only one call finalizes it. A rejected object is
+     * removed and the claim released, and the client may PUT again while the
+     * URL is valid. A name taken by a concurrent upload answers 409.
+     */
+    @PostMapping("presigned-uploads/{uploadId}/finalize")
+    public ResponseEntity<OutputResponseMedia> finalizePresignedUpload(@PathVariable UUID uploadId)
+            throws Exception {
+        PresignedUpload upload = presignedUploadRepository.findById(uploadId).orElse(null);
+        if (upload == null) {
+            return ResponseEntity.status(404).build();
+        }
+        // Claimed before anything is copied, so concurrent calls cannot both finalize. The row
+        // stays finalized until it expires, so the janitor removes anything PUT to the staging key later.
+        if (presignedUploadRepository.claim(uploadId, Instant.now()) == 0) {
+            return ResponseEntity.status(409).build(); // Conflict
+        }
+        boolean finalized = false;
+        try {
+            ResponseEntity<OutputResponseMedia> response = finalizeClaimed(upload);
+            finalized = response.getStatusCode().value() == 201;
+            return response;
+        } finally {
+            if (!finalized) {
+                // Rejected or failed; the client may PUT again and retry
+                presignedUploadRepository.release(uploadId);
+            }
+        }
+    }
+
+    private ResponseEntity<OutputResponseMedia> finalizeClaimed(PresignedUpload upload) throws Exception {
+        StoredObject staged = storageBackend.stat(upload.getBucket(), upload.getStagingObjectName());
+        if (staged == null) {
+            // Nothing uploaded yet; the client may still PUT and retry
+            return ResponseEntity.status(409).build(); // Conflict
+        }
+
+        // A single-part PUT without SSE-KMS has the content MD5 as its ETag
+        if (staged.getSize() != upload.getFileSize()
+                || upload.getMd5() != null && !upload.getMd5().equalsIgnoreCase(staged.getEtag())) {
+            return reject(upload);
+        }
+
+        if (mediaRepository.findByAlbumIdAndFileName(upload.getAlbumId(), upload.getFileName()).isPresent()) {
+            return ResponseEntity.status(409).build(); // Conflict
+        }
+
+        // Rows issued before staging keys existed were written to their final key
+        if (!upload.getStagingObjectName().equals(upload.getObjectName())) {
+            storageBackend.copy(upload.getBucket(), upload.getStagingObjectName(), upload.getBucket(),
+                    upload.getObjectName());
+            storageBackend.delete(upload.getBucket(), upload.getStagingObjectName());
+        }
+
+        String hash;
+        long size;
+        try (UploadPipeline pipeline = new UploadPipeline(storageBackend.get(upload.getBucket(),
+                upload.getObjectName(), ByteRange.full(staged.getSize())))) {
+            if (!Constants.ALLOWED_TYPES.contains(pipeline.detectType())) {
+                storageBackend.delete(upload.getBucket(), upload.getObjectName());
+                return ResponseEntity.status(415).build(); // Unsupported Media Type
+            }
+            hash = pipeline.hash();
+            size = pipeline.size();
+        }
+        // The staging object may have been replaced between the size check and the copy
+        if (size != upload.getFileSize()) {
+            return reject(upload);
+        }
+
+        // The album may have been switched to the shared bucket since the URL was issued
+        storageLayout.followSwitch(upload.getAlbumId(), upload.getBucket(), upload.getObjectName());
+
+        Media entity = new Media(upload.getMediaId(), upload.getAlbumId(), upload.getFileName(),
+                upload.getFileType(), size, Instant.now(), hash);
+        try {
+            mediaRepository.save(entity);
+        } catch (DataIntegrityViolationException e) {
+            // The name was taken by an upload that committed after the check above; the
+            // album's current and legacy locations cover a copy made by followSwitch
+            Album album = albumRepository.findById(upload.getAlbumId()).orElse(null);
+            if (album != null) {
+                storageLayout.deleteMedia(album, List.of(entity.getId()));
+            } else {
+                storageBackend.delete(upload.getBucket(), upload.getObjectName());
+            }
+            return ResponseEntity.status(409).build(); // Conflict
+        }
+        metadataCache.touch(upload.getAlbumId());
+        albumRepository.findById(upload.getAlbumId())
+                .ifPresent(album -> previewGenerator.schedule(album, entity));
+
+        return ResponseEntity.status(201).body(new OutputResponseMedia(entity));
+    }
+
+    @GetMapping("media/{mediaId}/presigned-download")
+    public ResponseEntity<OutputResponsePresignedDownload> createPresignedDownload(@PathVariable UUID mediaId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+            throws Exception {
+        Media media = metadataCache.findMedia(mediaId);
+        Album album = media == null ? null : metadataCache.findAlbum(media.getAlbumId());
+        if (album == null) {
+            return ResponseEntity.status(404).build();
+        }
+
+        // Storage cannot negotiate and always sends compressed objects encoded, so clients
+        // that do not take gzip are pointed at downloadMediaFile, which decodes them.
+        if (media.getCodec() == Media.Codec.GZIP && !StorageCodec.acceptsGzip(acceptEncoding)) {
+            return ResponseEntity.status(200).body(new OutputResponsePresignedDownload(media.getId(),
+                    "/api/media/" + media.getId() + "/download", Instant.now().plus(expiry)));
+        }
+
+        // Same headers as downloadMediaFile, applied by the storage server
+        String url;
+        try {
+            url = storageBackend.presignGet(storageLayout.bucketOf(album),
+                    storageLayout.objectNameOf(album, media.getId()), expiry, media.getFileType(),
+                    "attachment; filename=\"" + media.getFileName() + "\"",
+                    media.getCodec() == Media.Codec.GZIP ? "gzip" : null);
+        } catch (UnsupportedOperationException e) {
+            return ResponseEntity.status(501).build(); // Not Implemented
+        }
+
+        return ResponseEntity.status(200)
+                .body(new OutputResponsePresignedDownload(media.getId(), url, Instant.now().plus(expiry)));
+    }
+
+    private boolean isTaken(UUID albumId, String fileName) {
+        return mediaRepository.findByAlbumIdAndFileName(albumId, fileName).isPresent()
+                || uploadSessionRepository.existsByAlbumIdAndFileName(albumId, fileName)
+                || presignedUploadRepository.existsByAlbumIdAndFileNameAndFinalizedAtIsNull(albumId, fileName);
+    }
+
+    private ResponseEntity<OutputResponseMedia> reject(PresignedUpload upload) throws Exception {
+        storageBackend.deleteAll(upload.getBucket(), List.of(upload.getStagingObjectName(), upload.getObjectName()));
+        return ResponseEntity.status(422).build(); // Unprocessable Content
+    }
+}
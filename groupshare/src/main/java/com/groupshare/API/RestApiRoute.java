@@ -1,62 +1,102 @@
 package com.groupshare.API;
 
-import java.io.IOException;
 import java.io.InputStream;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.net.URI;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.groupshare.DTOs.InputRequestAlbum;
+import com.groupshare.DTOs.InputRequestMediaBatchDelete;
 import com.groupshare.DTOs.OutputResponseAlbum;
+import com.groupshare.DTOs.OutputResponseAlbumDeletion;
+import com.groupshare.DTOs.OutputResponseBatchDelete;
+import com.groupshare.DTOs.OutputResponseBatchItem;
+import com.groupshare.DTOs.OutputResponseBatchUpload;
 import com.groupshare.DTOs.OutputResponseGetMedia;
 import com.groupshare.DTOs.OutputResponseMedia;
 import com.groupshare.Entitys.Album;
 import com.groupshare.Entitys.AlbumRepository;
 import com.groupshare.Entitys.Media;
+import com.groupshare.Entitys.MediaJdbcRepository;
 import com.groupshare.Entitys.MediaRepository;
+import com.groupshare.Services.AlbumPurger;
+import com.groupshare.Services.MetadataCache;
+import com.groupshare.Services.PreviewGenerator;
+import com.groupshare.Services.StorageCodec;
+import com.groupshare.Services.StorageLayout;
+import com.groupshare.Services.TransferMetrics;
+import com.groupshare.Services.UploadCommitter;
+import com.groupshare.Storage.ObjectDiskCache;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Utils.ByteRange;
 import com.groupshare.Utils.Constants;
-import com.groupshare.Utils.FileValidator;
-import com.groupshare.Utils.Helpers;
-
-import io.minio.BucketExistsArgs;
-import io.minio.MakeBucketArgs;
-import io.minio.MinioClient;
-import io.minio.errors.ErrorResponseException;
-import io.minio.errors.InsufficientDataException;
-import io.minio.errors.InternalException;
-import io.minio.errors.InvalidResponseException;
-import io.minio.errors.ServerException;
-import io.minio.errors.XmlParserException;
-import jakarta.annotation.PostConstruct;
+import com.groupshare.Utils.GzipEncodingInputStream;
+import com.groupshare.Utils.MediaCursor;
+import com.groupshare.Utils.PreviewSize;
+import com.groupshare.Utils.UploadPipeline;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api")
 public class RestApiRoute {
 
-    @Value("${minio.url}")
-    private String minioUrl;
+    @Value("${groupshare.listing.page-size:100}")
+    private int listingPageSize;
+
+    @Value("${groupshare.listing.max-page-size:1000}")
+    private int listingMaxPageSize;
+
+    // Matches spring.servlet.multipart.max-file-size; raw uploads bypass the multipart limits
+    @Value("${groupshare.raw-upload.max-size:20GB}")
+    private DataSize rawUploadMaxSize;
 
-    @Value("${minio.accessKey}")
-    private String minioAccessKey;
+    @Value("${groupshare.batch-upload.max-files:1000}")
+    private int batchMaxFiles;
 
-    @Value("${minio.secretKey}")
-    private String minioSecretKey;
+    @Value("${groupshare.batch-upload.concurrency:16}")
+    private int batchConcurrency;
+
+    @Value("${groupshare.batch-delete.max-ids:1000}")
+    private int batchDeleteMaxIds;
 
     @Autowired
     private AlbumRepository albumRepository;
@@ -64,20 +104,40 @@ public class RestApiRoute {
     @Autowired
     private MediaRepository mediaRepository;
 
-    private MinioClient minioClient;
+    @Autowired
+    private MetadataCache metadataCache;
 
-    @PostConstruct
-    public void initMinio() {
-        this.minioClient = MinioClient.builder()
-                .endpoint(minioUrl)
-                .credentials(minioAccessKey, minioSecretKey)
-                .build();
-    }
+    @Autowired
+    private MediaJdbcRepository mediaJdbcRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private ObjectDiskCache objectDiskCache;
+
+    @Autowired
+    private StorageCodec storageCodec;
+
+    @Autowired
+    private AlbumPurger albumPurger;
+
+    @Autowired
+    private StorageLayout storageLayout;
+
+    @Autowired
+    private PreviewGenerator previewGenerator;
+
+    @Autowired
+    private TransferMetrics transferMetrics;
+
+    @Autowired
+    private UploadCommitter uploadCommitter;
 
     @PostMapping("/albums")
     public ResponseEntity<OutputResponseAlbum> createAlbum(@RequestBody InputRequestAlbum entity) throws Exception {
 
-        if (albumRepository.findByName(entity.getName()) != null) {
+        if (albumRepository.findByNameAndDeletedAtIsNull(entity.getName()) != null) {
             return ResponseEntity.status(409).build();
         }
 
@@ -86,15 +146,9 @@ public class RestApiRoute {
         }
 
         Album newAlbum = new Album(UUID.randomUUID(), entity.getName(), Instant.now());
+        newAlbum.setChangedAt(newAlbum.getCreatedAt());
+        storageLayout.provision(newAlbum);
         albumRepository.save(newAlbum);
-        String albumName = "album-" + newAlbum.getId();
-
-        boolean found = minioClient.bucketExists(BucketExistsArgs.builder().bucket(albumName).build());
-        if (!found) {
-            minioClient.makeBucket(MakeBucketArgs.builder().bucket(albumName).build());
-        } else {
-            System.out.println("Bucket 'test' already exists.");
-        }
 
         OutputResponseAlbum response = new OutputResponseAlbum(newAlbum.getId(), newAlbum.getCreatedAt());
 
@@ -105,33 +159,28 @@ public class RestApiRoute {
     public ResponseEntity<OutputResponseMedia> postMethodName(@PathVariable UUID albumId,
             @RequestParam("file") MultipartFile file) throws Exception {
 
-        Album album = albumRepository.findById(albumId).orElse(null);
+        Album album = transferMetrics.time("upload", "album_lookup",
+                () -> metadataCache.findAlbum(albumId));
         if (album == null) {
             return ResponseEntity.status(400).build();
         }
 
-        String albumName = Helpers.getAlbumName(albumId);
-        boolean found = minioClient.bucketExists(BucketExistsArgs.builder().bucket(albumName).build());
-        if (!found) {
+        if (!transferMetrics.time("upload", "bucket_check", () -> storageLayout.isProvisioned(album))) {
             return ResponseEntity.status(400).build();
         }
 
-        if (mediaRepository.findByAlbumIdAndFileName(albumId, file.getOriginalFilename()).isPresent()) {
+        Media entity;
+        try (UploadPipeline pipeline = new UploadPipeline(file.getInputStream())) {
+            entity = storeAndCommit(album, file.getOriginalFilename(), file.getContentType(), file.getSize(),
+                    pipeline);
+        } catch (DuplicateKeyException e) {
             return ResponseEntity.status(409).build(); // Conflict
         }
-
-        // Validate file type using FileValidator and file.getContentType()
-        if (!FileValidator.isAllowed(file.getInputStream())
-                || !Constants.ALLOWED_TYPES.contains(file.getContentType())) {
+        if (entity == null) {
             return ResponseEntity.status(415).build(); // Unsupported Media Type
         }
-
-        Media entity = new Media(UUID.randomUUID(), albumId, file.getOriginalFilename(),
-                file.getContentType(),
-                file.getSize(), Instant.now(), "hash");
-        mediaRepository.save(entity);
-
-        Helpers.uploadFileToMinio(albumName, file, entity, minioClient);
+        metadataCache.touch(albumId);
+        previewGenerator.schedule(album, entity);
 
         OutputResponseMedia response = new OutputResponseMedia(entity.getId(), entity.getFileName(),
                 entity.getFileType(), entity.getFileSize(), entity.getUploadedAt());
@@ -139,91 +188,570 @@ public class RestApiRoute {
         return ResponseEntity.status(201).body(response);
     }
 
-    @DeleteMapping("albums/{albumId}")
-    public ResponseEntity<Void> deleteAlbum(@PathVariable UUID albumId) {
+    /**
+     * Takes the request body as the file itself, so it is never spooled to
+     * local disk on the way to storage. Without a Content-Length the body is
+     * read chunked and stored as a multipart upload of unknown size.
+     */
+    @PutMapping("albums/{albumId}/media/{fileName}")
+    public ResponseEntity<OutputResponseMedia> putMedia(@PathVariable UUID albumId, @PathVariable String fileName,
+            HttpServletRequest request) throws Exception {
+
+        if (fileName.isBlank()) {
+            return ResponseEntity.status(400).build();
+        }
+
+        long contentLength = request.getContentLengthLong();
+        if (contentLength > rawUploadMaxSize.toBytes()) {
+            return ResponseEntity.status(413).build(); // Payload Too Large
+        }
+
+        String fileType;
+        try {
+            MediaType mediaType = MediaType.parseMediaType(request.getContentType());
+            fileType = mediaType.getType() + "/" + mediaType.getSubtype();
+        } catch (InvalidMediaTypeException e) {
+            fileType = null;
+        }
+        if (!Constants.ALLOWED_TYPES.contains(fileType)) {
+            return ResponseEntity.status(415).build(); // Unsupported Media Type
+        }
+
+        Album album = transferMetrics.time("upload", "album_lookup",
+                () -> metadataCache.findAlbum(albumId));
+        if (album == null) {
+            return ResponseEntity.status(400).build();
+        }
+
+        if (!transferMetrics.time("upload", "bucket_check", () -> storageLayout.isProvisioned(album))) {
+            return ResponseEntity.status(400).build();
+        }
+
+        Media entity;
+        try (UploadPipeline pipeline = new UploadPipeline(request.getInputStream(), rawUploadMaxSize.toBytes())) {
+            entity = storeAndCommit(album, fileName, fileType, contentLength, pipeline);
+        } catch (DuplicateKeyException e) {
+            return ResponseEntity.status(409).build(); // Conflict
+        } catch (Exception e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof UploadPipeline.TooLargeException) {
+                    return ResponseEntity.status(413).build(); // Payload Too Large
+                }
+            }
+            throw e;
+        }
+        if (entity == null) {
+            return ResponseEntity.status(415).build(); // Unsupported Media Type
+        }
+        metadataCache.touch(albumId);
+        previewGenerator.schedule(album, entity);
+
+        return ResponseEntity.status(201).body(new OutputResponseMedia(entity));
+    }
+
+    @PostMapping("albums/{albumId}/upload/batch")
+    public ResponseEntity<OutputResponseBatchUpload> uploadBatch(@PathVariable UUID albumId,
+            @RequestParam("files") List<MultipartFile> files) throws Exception {
+
+        if (files.isEmpty() || files.size() > batchMaxFiles) {
+            return ResponseEntity.status(400).build();
+        }
+
+        // Album, bucket and duplicate checks run once for the whole batch
+        Album album = metadataCache.findAlbum(albumId);
+        if (album == null) {
+            return ResponseEntity.status(400).build();
+        }
+
+        if (!storageLayout.isProvisioned(album)) {
+            return ResponseEntity.status(400).build();
+        }
+
+        Set<String> fileNames = new HashSet<>();
+        for (MultipartFile file : files) {
+            fileNames.add(file.getOriginalFilename());
+        }
+        Set<String> taken = new HashSet<>(mediaRepository.findExistingFileNames(albumId, fileNames));
+
+        // Virtual threads park cheaply on MinIO I/O; the semaphore caps concurrent transfers
+        Semaphore permits = new Semaphore(batchConcurrency);
+        List<Future<Media>> stored = new ArrayList<>(files.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (MultipartFile file : files) {
+                if (!taken.add(file.getOriginalFilename())) {
+                    stored.add(null); // Conflict with an existing file or an earlier part of this batch
+                    continue;
+                }
+                stored.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return storeUpload(album, file);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        }
 
-        Helpers.deleteBucketFromMinio(Helpers.getAlbumName(albumId), minioClient);
+        List<Media> created = new ArrayList<>();
+        List<OutputResponseBatchItem> results = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            String fileName = files.get(i).getOriginalFilename();
+            Future<Media> future = stored.get(i);
+            if (future == null) {
+                results.add(new OutputResponseBatchItem(fileName, OutputResponseBatchItem.Status.CONFLICT, null));
+                continue;
+            }
+            try {
+                Media entity = future.get();
+                if (entity == null) {
+                    results.add(new OutputResponseBatchItem(fileName,
+                            OutputResponseBatchItem.Status.UNSUPPORTED_TYPE, null));
+                } else {
+                    created.add(entity);
+                    results.add(new OutputResponseBatchItem(fileName, OutputResponseBatchItem.Status.CREATED,
+                            new OutputResponseMedia(entity)));
+                }
+            } catch (ExecutionException e) {
+                results.add(new OutputResponseBatchItem(fileName, OutputResponseBatchItem.Status.FAILED, null));
+            }
+        }
+
+        if (!created.isEmpty()) {
+            // Names can still be taken by a concurrent upload; those rows are skipped by the insert
+            List<Media> skipped = transferMetrics.time("batch_upload", "db_save",
+                    () -> mediaJdbcRepository.insertAll(created));
+            if (!skipped.isEmpty()) {
+                Set<UUID> skippedIds = new HashSet<>();
+                for (Media entity : skipped) {
+                    skippedIds.add(entity.getId());
+                }
+                storageLayout.deleteMedia(album, skippedIds);
+                created.removeIf(entity -> skippedIds.contains(entity.getId()));
+                for (int i = 0; i < results.size(); i++) {
+                    OutputResponseBatchItem item = results.get(i);
+                    if (item.getMedia() != null && skippedIds.contains(item.getMedia().getMediaId())) {
+                        results.set(i, new OutputResponseBatchItem(item.getFileName(),
+                                OutputResponseBatchItem.Status.CONFLICT, null));
+                    }
+                }
+            }
+        }
+        if (!created.isEmpty()) {
+            metadataCache.touch(albumId);
+            for (Media entity : created) {
+                previewGenerator.schedule(album, entity);
+            }
+        }
+
+        return ResponseEntity.status(200).body(new OutputResponseBatchUpload(albumId, results));
+    }
+
+    @DeleteMapping("albums/{albumId}")
+    public ResponseEntity<OutputResponseAlbumDeletion> deleteAlbum(@PathVariable UUID albumId) {
 
         Album album = albumRepository.findById(albumId).orElse(null);
         if (album == null) {
             return ResponseEntity.status(404).build();
         }
 
-        mediaRepository.deleteAll(mediaRepository.findByAlbumId(albumId));
+        // Tombstone now, purge objects and rows in the background
+        if (album.getDeletedAt() == null) {
+            album.setDeletedAt(Instant.now());
+            albumRepository.save(album);
+            metadataCache.albumChanged(albumId);
+        }
+        albumPurger.schedule(albumId);
 
-        albumRepository.delete(album);
-        return ResponseEntity.status(204).build();
+        return ResponseEntity.status(202)
+                .location(URI.create("/api/albums/" + albumId + "/deletion"))
+                .body(new OutputResponseAlbumDeletion(album));
+    }
+
+    @GetMapping("albums/{albumId}/deletion")
+    public ResponseEntity<OutputResponseAlbumDeletion> getAlbumDeletion(@PathVariable UUID albumId) {
+        Album album = albumRepository.findById(albumId).orElse(null);
+        if (album == null || album.getDeletedAt() == null) {
+            return ResponseEntity.status(404).build();
+        }
+        return ResponseEntity.status(200).body(new OutputResponseAlbumDeletion(album));
     }
 
     @GetMapping("albums/{albumId}/media")
-    public ResponseEntity<OutputResponseGetMedia> getMedia(@PathVariable UUID albumId) {
+    public ResponseEntity<OutputResponseGetMedia> getMedia(@PathVariable UUID albumId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            WebRequest webRequest) throws Exception {
+
+        int pageSize = limit == null ? listingPageSize : limit;
+        if (pageSize < 1 || pageSize > listingMaxPageSize) {
+            return ResponseEntity.status(400).build();
+        }
+
+        // Any change to the album's media bumps changedAt, so a poll that finds
+        // nothing new costs one primary-key lookup
+        Album album = transferMetrics.time("list", "album_lookup",
+                () -> metadataCache.findAlbum(albumId));
+        Instant changedAt = album == null ? null
+                : album.getChangedAt() != null ? album.getChangedAt() : album.getCreatedAt();
+        String etag = changedAt == null ? null
+                : "W/\"" + ChronoUnit.MICROS.between(Instant.EPOCH, changedAt) + "\"";
+        if (etag != null && webRequest.checkNotModified(etag, changedAt.toEpochMilli())) {
+            return ResponseEntity.status(304).build(); // Not Modified
+        }
 
-        List<Media> mediaList = Helpers.getMediaFromAlbumFromMinio(albumId, minioClient);
-        if (mediaList == null || mediaList.isEmpty()) {
-            return ResponseEntity.status(200).body(new OutputResponseGetMedia(albumId, new ArrayList<>()));
+        // Fetch one extra row to learn whether another page follows.
+        MediaCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                after = MediaCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(400).build();
+            }
+        }
+        MediaCursor from = after;
+        List<Media> mediaList = transferMetrics.time("list", "page_query",
+                () -> album == null ? List.<Media>of() : metadataCache.findPage(album, from, pageSize + 1));
+
+        String nextCursor = null;
+        if (mediaList.size() > pageSize) {
+            mediaList = mediaList.subList(0, pageSize);
+            nextCursor = MediaCursor.after(mediaList.get(pageSize - 1)).encode();
         }
-        List<OutputResponseMedia> responseList = new ArrayList<>();
+
+        List<OutputResponseMedia> responseList = new ArrayList<>(mediaList.size());
         for (Media media : mediaList) {
             responseList.add(new OutputResponseMedia(media));
         }
 
-        return ResponseEntity.status(200).body(new OutputResponseGetMedia(albumId, responseList));
+        return ResponseEntity.status(200).body(new OutputResponseGetMedia(albumId, responseList, nextCursor));
     }
 
     @DeleteMapping("media/{mediaId}")
     public ResponseEntity<Void> deleteMedia(@PathVariable UUID mediaId) {
-        Media media = mediaRepository.findById(mediaId).orElse(null);
-        if (media == null) {
+        Media media = metadataCache.findMedia(mediaId);
+        Album album = media == null ? null : metadataCache.findAlbum(media.getAlbumId());
+        if (album == null) {
             return ResponseEntity.status(404).build();
         }
 
-        String bucketName = Helpers.getAlbumName(media.getAlbumId());
+        // Objects are keyed by media id, so the original and its previews are addressed directly
         try {
-            boolean found = minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build());
-            if (found) {
-                Iterable<io.minio.Result<io.minio.messages.Item>> items = minioClient.listObjects(
-                        io.minio.ListObjectsArgs.builder().bucket(bucketName).build());
-                for (io.minio.Result<io.minio.messages.Item> item : items) {
-                    String objectName = item.get().objectName();
-                    if (objectName.equals(media.getFileName())) {
-                        minioClient.removeObject(
-                                io.minio.RemoveObjectArgs.builder().bucket(bucketName).object(objectName).build());
-                        break;
-                    }
-                }
-            } else {
-                return ResponseEntity.status(404).build();
+            if (!storageLayout.deleteMedia(album, List.of(media.getId())).isEmpty()) {
+                return ResponseEntity.status(500).build();
             }
-        } catch (ErrorResponseException | InsufficientDataException | InternalException | InvalidResponseException
-                | ServerException | XmlParserException | IOException | IllegalArgumentException | InvalidKeyException
-                | NoSuchAlgorithmException e) {
+        } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
 
-        mediaRepository.delete(media);
+        mediaRepository.deleteAllByIdInBatch(List.of(media.getId()));
+        metadataCache.mediaRemoved(List.of(media.getId()));
+        objectDiskCache.evict(List.of(media.getId()));
+        metadataCache.touch(album.getId());
         return ResponseEntity.status(204).build();
     }
 
+    @PostMapping("media/batch-delete")
+    public ResponseEntity<OutputResponseBatchDelete> deleteMediaBatch(
+            @RequestBody InputRequestMediaBatchDelete request) throws Exception {
+
+        if (request.getMediaIds() == null || request.getMediaIds().isEmpty()
+                || request.getMediaIds().size() > batchDeleteMaxIds) {
+            return ResponseEntity.status(400).build();
+        }
+
+        Set<UUID> requested = new LinkedHashSet<>(request.getMediaIds());
+        Map<UUID, List<Media>> byAlbum = new HashMap<>();
+        for (Media media : mediaRepository.findLiveByIdIn(requested)) {
+            byAlbum.computeIfAbsent(media.getAlbumId(), id -> new ArrayList<>()).add(media);
+        }
+
+        // One multi-object delete per album, then one DELETE for all rows
+        List<UUID> deleted = new ArrayList<>();
+        List<UUID> failed = new ArrayList<>();
+        for (Album album : albumRepository.findAllById(byAlbum.keySet())) {
+            List<UUID> albumMediaIds = new ArrayList<>();
+            for (Media media : byAlbum.get(album.getId())) {
+                albumMediaIds.add(media.getId());
+            }
+            Set<UUID> notRemoved = new HashSet<>(storageLayout.deleteMedia(album, albumMediaIds));
+            for (UUID mediaId : albumMediaIds) {
+                (notRemoved.contains(mediaId) ? failed : deleted).add(mediaId);
+            }
+        }
+        if (!deleted.isEmpty()) {
+            mediaRepository.deleteAllByIdInBatch(deleted);
+            metadataCache.mediaRemoved(deleted);
+            objectDiskCache.evict(deleted);
+            for (UUID albumId : byAlbum.keySet()) {
+                metadataCache.touch(albumId);
+            }
+        }
+
+        List<UUID> notFound = new ArrayList<>(requested);
+        notFound.removeAll(deleted);
+        notFound.removeAll(failed);
+
+        return ResponseEntity.status(200).body(new OutputResponseBatchDelete(deleted, notFound, failed));
+    }
+
     @GetMapping("media/{mediaId}/download")
-    public ResponseEntity<byte[]> downloadMediaFile(@PathVariable UUID mediaId) {
-        Media media = mediaRepository.findById(mediaId).orElse(null);
-        if (media == null) {
+    public ResponseEntity<Resource> downloadMediaFile(@PathVariable UUID mediaId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRangeHeader,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest) throws Exception {
+        Media media = transferMetrics.time("download", "media_lookup",
+                () -> metadataCache.findMedia(mediaId));
+        Album album = media == null ? null
+                : transferMetrics.time("download", "album_lookup",
+                        () -> metadataCache.findAlbum(media.getAlbumId()));
+        if (album == null) {
             return ResponseEntity.status(404).build();
         }
-        UUID albumId = media.getAlbumId();
+
+        // Compressed objects go out as stored when the client takes gzip. Ranges always
+        // address the original bytes, so ranged requests are decoded instead.
+        boolean compressed = media.getCodec() == Media.Codec.GZIP;
+        boolean encoded = compressed && rangeHeader == null && StorageCodec.acceptsGzip(acceptEncoding);
+
+        // Answered from the row alone; storage is only contacted when a body is sent.
+        // checkNotModified also writes the ETag and Last-Modified response headers.
+        String etag = encoded ? etagOf(media, "-gzip") : etagOf(media, "");
+        if (webRequest.checkNotModified(etag, media.getUploadedAt().toEpochMilli())) {
+            return ResponseEntity.status(304).build(); // Not Modified
+        }
+
+        ByteRange range;
         try {
-            byte[] fileBytes;
-            try (InputStream downloadStream = Helpers.downloadFileFromMinio(Helpers.getAlbumName(albumId), media,
-                    minioClient)) {
-                fileBytes = downloadStream.readAllBytes();
-            }
-            return ResponseEntity.ok()
+            range = ByteRange.resolve(rangeHeader, ifRangeHeader, media.getFileSize(), media.getUploadedAt(),
+                    etag);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(416)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + media.getFileSize())
+                    .build();
+        }
+
+        try {
+            // Plain InputStreamResource is streamed by Spring with a fixed-size buffer and is
+            // not subjected to a second round of Range processing.
+            ByteRange requested = compressed ? ByteRange.full(media.storedBytes()) : range;
+            InputStream stored = transferMetrics.time("download", "storage_get", () -> objectDiskCache.get(
+                    storageLayout.bucketOf(album), storageLayout.objectNameOf(album, media.getId()),
+                    media, requested));
+            InputStream downloadStream = transferMetrics.track("download",
+                    encoded ? stored : storageCodec.decode(media, stored, range));
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(range.isPartial() ? 206 : 200)
                     .header("Content-Disposition", "attachment; filename=\"" + media.getFileName() + "\"")
                     .header("Content-Type", media.getFileType())
-                    .body(fileBytes);
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .contentLength(encoded ? media.storedBytes() : range.getLength());
+            if (compressed) {
+                response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            if (encoded) {
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            if (range.isPartial()) {
+                response.header(HttpHeaders.CONTENT_RANGE, range.contentRange());
+            }
+            return response.body(new InputStreamResource(downloadStream));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    /**
+     * Strong validator for the bytes sent, which differ per content coding;
+     * null for rows without a content hash.
+     */
+    private static String etagOf(Media media, String coding) {
+        return media.getHash() == null ? null : "\"" + media.getHash() + coding + "\"";
+    }
+
+    /**
+     * Serves a generated preview. Until it exists, e.g. right after the upload or
+     * for image types without previews, the original image is returned instead.
+     * Other types have no preview at all.
+     */
+    @GetMapping("media/{mediaId}/preview")
+    public ResponseEntity<Resource> getMediaPreview(@PathVariable UUID mediaId,
+            @RequestParam(value = "size", defaultValue = "medium") String size) {
+        PreviewSize previewSize;
+        try {
+            previewSize = PreviewSize.fromName(size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).build();
+        }
+
+        Media media = metadataCache.findMedia(mediaId);
+        Album album = media == null ? null : metadataCache.findAlbum(media.getAlbumId());
+        if (album == null) {
+            return ResponseEntity.status(404).build();
+        }
+
+        // Videos, documents and the like would stream the whole original
+        if (!media.getFileType().startsWith("image/")) {
+            return ResponseEntity.status(404).build();
+        }
+
+        String bucketName = storageLayout.bucketOf(album);
+        if (PreviewGenerator.supports(media) && !previewGenerator.hasFailed(mediaId)) {
+            try {
+                InputStream preview = storageBackend.get(bucketName,
+                        storageLayout.previewObjectNameOf(album, mediaId, previewSize),
+                        ByteRange.full(-1)); // Full reads do not need the length
+                return ResponseEntity.status(200)
+                        .header("Content-Type", "image/jpeg")
+                        .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                        .body(new InputStreamResource(preview));
+            } catch (Exception e) {
+                // Not generated yet, or the earlier attempt was dropped
+                previewGenerator.schedule(album, media);
+            }
+        }
+
+        try {
+            InputStream original = storageCodec.decode(media, storageBackend.get(bucketName,
+                    storageLayout.objectNameOf(album, mediaId), ByteRange.full(media.storedBytes())));
+            return ResponseEntity.status(200)
+                    .header("Content-Type", media.getFileType())
+                    .cacheControl(CacheControl.noCache())
+                    .contentLength(media.getFileSize())
+                    .body(new InputStreamResource(original));
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
     }
 
+    /**
+     * Reads the upload once: sniffs the prefix, then hashes while streaming into
+     * storage. Returns {@code null} when the declared or sniffed type is not allowed.
+     */
+    private Media storeUpload(Album album, MultipartFile file) throws Exception {
+        try (UploadPipeline pipeline = new UploadPipeline(file.getInputStream())) {
+            return storeStream(album, file.getOriginalFilename(), file.getContentType(), file.getSize(), pipeline);
+        }
+    }
+
+    /**
+     * Stores the object only; the caller inserts the row. A negative
+     * {@code fileSize} means the length is unknown; the returned entity carries
+     * the size that was actually read.
+     */
+    private Media storeStream(Album album, String fileName, String fileType, long fileSize,
+            UploadPipeline pipeline) throws Exception {
+        if (!isAllowed(fileType, pipeline)) {
+            return null;
+        }
+
+        Media entity = new Media(UUID.randomUUID(), album.getId(), fileName, fileType, fileSize, Instant.now(),
+                null);
+        entity.setCodec(storageCodec.codecFor(fileType, fileSize));
+        return putAndHash(storageLayout.bucketOf(album), storageLayout.objectNameOf(album, entity.getId()),
+                entity, pipeline);
+    }
+
+    /**
+     * Stores the object and its row together: the row is reserved as PENDING
+     * while the bytes are streaming, and committed once they are stored. The
+     * unique (album_id, file_name) constraint decides duplicates, which
+     * surface as a {@link DuplicateKeyException}.
+     */
+    private Media storeAndCommit(Album album, String fileName, String fileType, long fileSize,
+            UploadPipeline pipeline) throws Exception {
+        if (!isAllowed(fileType, pipeline)) {
+            return null;
+        }
+
+        // Hash is filled in on commit
+        Media pending = new Media(UUID.randomUUID(), album.getId(), fileName, fileType, fileSize, Instant.now(), "");
+        pending.setStatus(Media.Status.PENDING);
+        pending.setCodec(storageCodec.codecFor(fileType, fileSize));
+        String bucketName = storageLayout.bucketOf(album);
+        String objectName = storageLayout.objectNameOf(album, pending.getId());
+
+        Media committed;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> reservation = executor.submit(() -> {
+                try {
+                    transferMetrics.run("upload", "db_reserve",
+                            () -> uploadCommitter.reserve(pending, bucketName, objectName));
+                } catch (Exception e) {
+                    // Stops the put at its next read instead of storing the whole body first
+                    pipeline.abort(e);
+                    throw e;
+                }
+                return null;
+            });
+
+            Media stored;
+            try {
+                stored = putAndHash(bucketName, objectName, pending, pipeline);
+            } catch (Exception e) {
+                try {
+                    reservation.get();
+                } catch (ExecutionException reservationFailure) {
+                    // The put was stopped because of it, e.g. a duplicate name
+                    throw reservationFailure.getCause() instanceof Exception cause ? cause : reservationFailure;
+                }
+                try {
+                    uploadCommitter.rollback(pending.getId());
+                } catch (Exception rollbackFailure) {
+                    // Left for the recovery pass
+                }
+                throw e;
+            }
+
+            try {
+                reservation.get();
+            } catch (ExecutionException e) {
+                storageBackend.delete(bucketName, objectName);
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+            committed = stored;
+        }
+
+        if (!transferMetrics.time("upload", "db_commit", () -> uploadCommitter.commit(committed.getId(),
+                committed.getFileSize(), committed.getStoredSize(), committed.getHash()))) {
+            storageBackend.delete(bucketName, objectName);
+            throw new IllegalStateException("Upload " + committed.getId() + " is no longer pending");
+        }
+        return committed;
+    }
+
+    private boolean isAllowed(String declaredType, UploadPipeline pipeline) throws Exception {
+        return Constants.ALLOWED_TYPES.contains(declaredType)
+                && Constants.ALLOWED_TYPES.contains(transferMetrics.time("upload", "detect_type",
+                        pipeline::detectType));
+    }
+
+    /**
+     * Streams the upload into storage, compressed when {@code entity}'s codec
+     * says so. Returns the entity with the size and hash of the original bytes
+     * and, for compressed uploads, the stored size.
+     */
+    private Media putAndHash(String bucketName, String objectName, Media entity, UploadPipeline pipeline)
+            throws Exception {
+        GzipEncodingInputStream encoder = entity.getCodec() == Media.Codec.GZIP
+                ? storageCodec.encode(pipeline.stream())
+                : null;
+        // The compressed length is only known once the upload has been read; small
+        // outputs still end up in a single put, see MultipartUploadEngine.upload
+        Media target = encoder == null ? entity
+                : new Media(entity.getId(), entity.getAlbumId(), entity.getFileName(), entity.getFileType(), -1L,
+                        entity.getUploadedAt(), entity.getHash());
+        try (InputStream body = transferMetrics.track("upload", encoder != null ? encoder : pipeline.stream())) {
+            transferMetrics.run("upload", "storage_put",
+                    () -> storageBackend.put(bucketName, objectName, target, body));
+            storageLayout.followSwitch(entity.getAlbumId(), bucketName, objectName);
+            // Hashed before the tracked stream closes the pipeline's
+            Media stored = new Media(entity.getId(), entity.getAlbumId(), entity.getFileName(),
+                    entity.getFileType(), pipeline.size(), entity.getUploadedAt(), pipeline.hash());
+            stored.setCodec(entity.getCodec());
+            stored.setStoredSize(encoder == null ? null : encoder.produced());
+            return stored;
+        }
+    }
+
 }
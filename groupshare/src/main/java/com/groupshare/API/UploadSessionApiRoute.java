@@ -0,0 +1,310 @@
+package com.groupshare.API;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.groupshare.DTOs.InputRequestUploadSession;
+import com.groupshare.DTOs.OutputResponseChunk;
+import com.groupshare.DTOs.OutputResponseMedia;
+import com.groupshare.DTOs.OutputResponseUploadSession;
+import com.groupshare.Entitys.Album;
+import com.groupshare.Entitys.AlbumRepository;
+import com.groupshare.Entitys.Media;
+import com.groupshare.Entitys.MediaRepository;
+import com.groupshare.Entitys.PresignedUploadRepository;
+import com.groupshare.Entitys.UploadSession;
+import com.groupshare.Entitys.UploadSessionRepository;
+import com.groupshare.Services.MetadataCache;
+import com.groupshare.Services.PreviewGenerator;
+import com.groupshare.Services.StorageLayout;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Utils.ByteRange;
+import com.groupshare.Utils.Constants;
+import com.groupshare.Utils.FileValidator;
+import com.groupshare.Utils.Helpers;
+import com.groupshare.Utils.MultipartMinioClient;
+import com.groupshare.Utils.UploadPipeline;
+
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Resumable uploads: a session wraps a MinIO multipart upload, chunks can be
+ * sent in any order and retried, and completing the session creates the
+ * {@link Media} row.
+ */
+@RestController
+@RequestMapping("/api")
+public class UploadSessionApiRoute {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSessionApiRoute.class);
+
+    // S3 limits a multipart upload to 10,000 parts.
+    private static final int MAX_CHUNKS = 10_000;
+
+    @Value("${groupshare.upload-sessions.chunk-size:8MB}")
+    private DataSize chunkSize;
+
+    @Value("${groupshare.upload-sessions.max-chunk-size:64MB}")
+    private DataSize maxChunkSize;
+
+    @Value("${groupshare.upload-sessions.ttl:24h}")
+    private Duration sessionTtl;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private MediaRepository mediaRepository;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private PresignedUploadRepository presignedUploadRepository;
+
+    @Autowired
+    private StorageLayout storageLayout;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private PreviewGenerator previewGenerator;
+
+    @Autowired
+    private MultipartMinioClient multipartMinioClient;
+
+    @PostMapping("albums/{albumId}/sessions")
+    public ResponseEntity<OutputResponseUploadSession> createSession(@PathVariable UUID albumId,
+            @RequestBody InputRequestUploadSession request) throws Exception {
+
+        if (!storageBackend.supportsMultipartUploads()) {
+            return ResponseEntity.status(501).build(); // Not Implemented
+        }
+
+        if (request.getFileName() == null || request.getFileName().isBlank()) {
+            return ResponseEntity.status(400).build();
+        }
+
+        Album album = metadataCache.findAlbum(albumId);
+        if (album == null) {
+            return ResponseEntity.status(400).build();
+        }
+
+        if (!storageLayout.isProvisioned(album)) {
+            return ResponseEntity.status(400).build();
+        }
+
+        if (!Constants.ALLOWED_TYPES.contains(request.getFileType())) {
+            return ResponseEntity.status(415).build(); // Unsupported Media Type
+        }
+
+        if (mediaRepository.findByAlbumIdAndFileName(albumId, request.getFileName()).isPresent()
+                || uploadSessionRepository.existsByAlbumIdAndFileName(albumId, request.getFileName())
+                || presignedUploadRepository.existsByAlbumIdAndFileNameAndFinalizedAtIsNull(albumId,
+                        request.getFileName())) {
+            return ResponseEntity.status(409).build(); // Conflict
+        }
+
+        // The object's location is pinned on the session, so a layout migration
+        // of the album cannot move the key out from under a running upload
+        UUID mediaId = UUID.randomUUID();
+        String bucketName = storageLayout.bucketOf(album);
+        String objectName = storageLayout.objectNameOf(album, mediaId);
+        String uploadId = multipartMinioClient.createMultipartUpload(bucketName, objectName,
+                Map.of("Content-Type", request.getFileType()));
+
+        Instant now = Instant.now();
+        UploadSession session = new UploadSession(UUID.randomUUID(), albumId, mediaId, request.getFileName(),
+                request.getFileType(), bucketName, objectName, uploadId, now, now.plus(sessionTtl));
+        uploadSessionRepository.save(session);
+
+        return ResponseEntity.status(201).body(toResponse(session, new ArrayList<>()));
+    }
+
+    @PutMapping("sessions/{sessionId}/chunks/{chunkNumber}")
+    public ResponseEntity<OutputResponseChunk> uploadChunk(@PathVariable UUID sessionId,
+            @PathVariable int chunkNumber,
+            HttpServletRequest request) throws Exception {
+
+        UploadSession session = uploadSessionRepository.findById(sessionId).orElse(null);
+        if (session == null) {
+            return ResponseEntity.status(404).build();
+        }
+        if (session.getExpiresAt().isBefore(Instant.now())) {
+            return ResponseEntity.status(410).build(); // Gone
+        }
+        if (chunkNumber < 1 || chunkNumber > MAX_CHUNKS) {
+            return ResponseEntity.status(400).build();
+        }
+        long contentLength = request.getContentLengthLong();
+        if (contentLength < 0) {
+            return ResponseEntity.status(411).build(); // Length Required
+        }
+        if (contentLength > maxChunkSize.toBytes()) {
+            return ResponseEntity.status(413).build(); // Payload Too Large
+        }
+
+        byte[] chunk = request.getInputStream().readNBytes((int) contentLength);
+        if (chunk.length != contentLength) {
+            return ResponseEntity.status(400).build();
+        }
+
+        // The first chunk carries the magic bytes, so it is the one that gets sniffed
+        if (chunkNumber == 1 && !Constants.ALLOWED_TYPES.contains(
+                FileValidator.getFileType(new ByteArrayInputStream(chunk)))) {
+            return ResponseEntity.status(415).build(); // Unsupported Media Type
+        }
+
+        // Only the last part may be shorter than the S3 minimum, so a short chunk ends the
+        // upload. Caught here, as completing the upload would otherwise fail with EntityTooSmall.
+        for (Part part : listParts(session)) {
+            if (part.partNumber() < chunkNumber && part.partSize() < Helpers.MIN_PART_SIZE) {
+                return ResponseEntity.status(400).build();
+            }
+            if (part.partNumber() > chunkNumber && chunk.length < Helpers.MIN_PART_SIZE) {
+                return ResponseEntity.status(400).build();
+            }
+        }
+
+        String etag = multipartMinioClient.uploadPart(session.getBucket(), session.getObjectName(),
+                session.getUploadId(), chunkNumber, chunk, chunk.length);
+
+        return ResponseEntity.status(200).body(new OutputResponseChunk(chunkNumber, (long) chunk.length, etag));
+    }
+
+    @GetMapping("sessions/{sessionId}")
+    public ResponseEntity<OutputResponseUploadSession> getSession(@PathVariable UUID sessionId) throws Exception {
+        UploadSession session = uploadSessionRepository.findById(sessionId).orElse(null);
+        if (session == null) {
+            return ResponseEntity.status(404).build();
+        }
+
+        List<OutputResponseChunk> chunks = new ArrayList<>();
+        for (Part part : listParts(session)) {
+            chunks.add(new OutputResponseChunk(part.partNumber(), part.partSize(), part.etag()));
+        }
+        return ResponseEntity.status(200).body(toResponse(session, chunks));
+    }
+
+    @PostMapping("sessions/{sessionId}/complete")
+    public ResponseEntity<OutputResponseMedia> completeSession(@PathVariable UUID sessionId) throws Exception {
+        UploadSession session = uploadSessionRepository.findById(sessionId).orElse(null);
+        if (session == null) {
+            return ResponseEntity.status(404).build();
+        }
+        if (session.getExpiresAt().isBefore(Instant.now())) {
+            return ResponseEntity.status(410).build(); // Gone
+        }
+
+        // Chunks must form a gap-free 1..n sequence, otherwise bytes would silently be missing
+        List<Part> parts = listParts(session);
+        long size = 0;
+        Part[] completed = new Part[parts.size()];
+        for (int i = 0; i < parts.size(); i++) {
+            Part part = parts.get(i);
+            if (part.partNumber() != i + 1) {
+                return ResponseEntity.status(409).build(); // Conflict
+            }
+            // Concurrent chunks can slip past the check in uploadChunk
+            if (i < parts.size() - 1 && part.partSize() < Helpers.MIN_PART_SIZE) {
+                return ResponseEntity.status(400).build();
+            }
+            completed[i] = new Part(part.partNumber(), part.etag());
+            size += part.partSize();
+        }
+        if (completed.length == 0) {
+            return ResponseEntity.status(409).build(); // Conflict
+        }
+
+        if (mediaRepository.findByAlbumIdAndFileName(session.getAlbumId(), session.getFileName()).isPresent()) {
+            return ResponseEntity.status(409).build(); // Conflict
+        }
+
+        multipartMinioClient.completeMultipartUpload(session.getBucket(), session.getObjectName(),
+                session.getUploadId(), completed);
+
+        // Chunks arrive out of order, so no streaming digest exists. The object is read back
+        // once to store the same SHA-256 as every other upload path.
+        String hash;
+        try (UploadPipeline pipeline = new UploadPipeline(storageBackend.get(session.getBucket(),
+                session.getObjectName(), ByteRange.full(size)))) {
+            hash = pipeline.hash();
+        } catch (Exception e) {
+            // The multipart upload is consumed, so the session cannot be retried
+            log.warn("Error hashing session upload {}", session.getId(), e);
+            storageBackend.delete(session.getBucket(), session.getObjectName());
+            uploadSessionRepository.delete(session);
+            return ResponseEntity.status(500).build();
+        }
+        // The album may have been switched to the shared bucket while chunks were arriving
+        storageLayout.followSwitch(session.getAlbumId(), session.getBucket(), session.getObjectName());
+
+        Media entity = new Media(session.getMediaId(), session.getAlbumId(), session.getFileName(),
+                session.getFileType(), size, Instant.now(), hash);
+        mediaRepository.save(entity);
+        uploadSessionRepository.delete(session);
+        metadataCache.touch(session.getAlbumId());
+        albumRepository.findById(session.getAlbumId())
+                .ifPresent(album -> previewGenerator.schedule(album, entity));
+
+        return ResponseEntity.status(201).body(new OutputResponseMedia(entity));
+    }
+
+    @DeleteMapping("sessions/{sessionId}")
+    public ResponseEntity<Void> abortSession(@PathVariable UUID sessionId) throws Exception {
+        UploadSession session = uploadSessionRepository.findById(sessionId).orElse(null);
+        if (session == null) {
+            return ResponseEntity.status(404).build();
+        }
+
+        multipartMinioClient.abortMultipartUpload(session.getBucket(), session.getObjectName(),
+                session.getUploadId());
+        uploadSessionRepository.delete(session);
+        return ResponseEntity.status(204).build();
+    }
+
+    private List<Part> listParts(UploadSession session) throws Exception {
+        List<Part> parts = new ArrayList<>();
+        int marker = 0;
+        while (true) {
+            ListPartsResult result = multipartMinioClient.listParts(session.getBucket(), session.getObjectName(),
+                    session.getUploadId(), 1000, marker).result();
+            parts.addAll(result.partList());
+            if (!result.isTruncated()) {
+                return parts;
+            }
+            marker = result.nextPartNumberMarker();
+        }
+    }
+
+    private OutputResponseUploadSession toResponse(UploadSession session, List<OutputResponseChunk> chunks) {
+        return new OutputResponseUploadSession(session.getId(), session.getFileName(), chunkSize.toBytes(),
+                session.getExpiresAt(), chunks);
+    }
+}
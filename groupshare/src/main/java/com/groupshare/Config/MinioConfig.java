@@ -0,0 +1,119 @@
+package com.groupshare.Config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.groupshare.Utils.MultipartMinioClient;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import io.minio.http.HttpUtils;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+@Configuration
+public class MinioConfig {
+
+    // The SDK's own connect, read and write timeout
+    private static final long HTTP_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    @Value("${minio.url}")
+    private String minioUrl;
+
+    @Value("${minio.accessKey}")
+    private String minioAccessKey;
+
+    @Value("${minio.secretKey}")
+    private String minioSecretKey;
+
+    @Value("${minio.public-url:${minio.url}}")
+    private String minioPublicUrl;
+
+    @Value("${minio.region:us-east-1}")
+    private String minioRegion;
+
+    /**
+     * One HTTP client, and so one connection pool, for all clients that talk
+     * to {@code minio.url}; passing it in explicitly is what lets the pool be
+     * observed.
+     */
+    @Bean
+    public OkHttpClient minioHttpClient() {
+        return HttpUtils.newDefaultHttpClient(HTTP_TIMEOUT_MILLIS, HTTP_TIMEOUT_MILLIS, HTTP_TIMEOUT_MILLIS);
+    }
+
+    @Bean
+    public MeterBinder minioHttpClientMetrics(OkHttpClient minioHttpClient) {
+        ConnectionPool pool = minioHttpClient.connectionPool();
+        Dispatcher dispatcher = minioHttpClient.dispatcher();
+        return registry -> {
+            Gauge.builder("minio.http.connections", pool, p -> p.connectionCount() - p.idleConnectionCount())
+                    .description("Pooled connections to MinIO")
+                    .tag("state", "active")
+                    .register(registry);
+            Gauge.builder("minio.http.connections", pool, ConnectionPool::idleConnectionCount)
+                    .description("Pooled connections to MinIO")
+                    .tag("state", "idle")
+                    .register(registry);
+            Gauge.builder("minio.http.calls", dispatcher, Dispatcher::runningCallsCount)
+                    .description("Asynchronous MinIO calls")
+                    .tag("state", "running")
+                    .register(registry);
+            Gauge.builder("minio.http.calls", dispatcher, Dispatcher::queuedCallsCount)
+                    .description("Asynchronous MinIO calls")
+                    .tag("state", "queued")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    @Primary
+    public MinioClient minioClient(OkHttpClient minioHttpClient) {
+        return MinioClient.builder()
+                .endpoint(minioUrl)
+                .credentials(minioAccessKey, minioSecretKey)
+                .httpClient(minioHttpClient)
+                .build();
+    }
+
+    /**
+     * Signs URLs handed to clients, so it uses the address clients can reach.
+     * The fixed region keeps signing offline; otherwise the first URL would
+     * trigger a bucket location lookup against that address.
+     */
+    @Bean
+    public MinioClient presignMinioClient() {
+        return MinioClient.builder()
+                .endpoint(minioPublicUrl)
+                .region(minioRegion)
+                .credentials(minioAccessKey, minioSecretKey)
+                .build();
+    }
+
+    @Bean
+    public MultipartMinioClient multipartMinioClient(OkHttpClient minioHttpClient) {
+        return new MultipartMinioClient(MinioAsyncClient.builder()
+                .endpoint(minioUrl)
+                .credentials(minioAccessKey, minioSecretKey)
+                .httpClient(minioHttpClient)
+                .build());
+    }
+
+    /**
+     * Shared by all large uploads; each upload additionally caps its own
+     * in-flight parts at {@code minio.multipart.parallelism}.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService minioPartUploadExecutor(@Value("${minio.multipart.pool-size:16}") int poolSize) {
+        return Executors.newFixedThreadPool(poolSize, Thread.ofPlatform().name("minio-part-", 0).factory());
+    }
+}
@@ -0,0 +1,16 @@
+package com.groupshare.DTOs;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor(onConstructor_ = @JsonCreator(mode = JsonCreator.Mode.PROPERTIES))
+@Data
+public class InputRequestMediaBatchDelete {
+
+    private final List<UUID> mediaIds;
+}
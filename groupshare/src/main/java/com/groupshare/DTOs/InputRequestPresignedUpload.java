@@ -0,0 +1,16 @@
+package com.groupshare.DTOs;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor(onConstructor_ = @JsonCreator)
+@Data
+public class InputRequestPresignedUpload {
+
+    private final String fileName;
+    private final String fileType;
+    private final Long fileSize;
+    private final String md5;
+}
@@ -0,0 +1,14 @@
+package com.groupshare.DTOs;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor(onConstructor_ = @JsonCreator)
+@Data
+public class InputRequestUploadSession {
+
+    private final String fileName;
+    private final String fileType;
+}
@@ -0,0 +1,38 @@
+package com.groupshare.DTOs;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import com.groupshare.Entitys.Album;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Data
+public class OutputResponseAlbumDeletion {
+
+    public enum State {
+        PENDING, PURGING, DONE
+    }
+
+    private final UUID albumId;
+    private final State state;
+    private final Long objectsRemoved;
+    private final Instant deletedAt;
+    private final Instant purgedAt;
+
+    public OutputResponseAlbumDeletion(Album album) {
+        this.albumId = album.getId();
+        this.objectsRemoved = album.getPurgedObjects() == null ? 0L : album.getPurgedObjects();
+        this.deletedAt = album.getDeletedAt();
+        this.purgedAt = album.getPurgedAt();
+        if (album.getPurgedAt() != null) {
+            this.state = State.DONE;
+        } else if (this.objectsRemoved > 0) {
+            this.state = State.PURGING;
+        } else {
+            this.state = State.PENDING;
+        }
+    }
+}
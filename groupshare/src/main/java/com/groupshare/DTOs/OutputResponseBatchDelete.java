@@ -0,0 +1,16 @@
+package com.groupshare.DTOs;
+
+import java.util.List;
+import java.util.UUID;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Data
+public class OutputResponseBatchDelete {
+
+    private final List<UUID> deleted;
+    private final List<UUID> notFound;
+    private final List<UUID> failed;
+}
@@ -0,0 +1,17 @@
+package com.groupshare.DTOs;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Data
+public class OutputResponseBatchItem {
+
+    public enum Status {
+        CREATED, CONFLICT, UNSUPPORTED_TYPE, FAILED
+    }
+
+    private final String fileName;
+    private final Status status;
+    private final OutputResponseMedia media;
+}
@@ -0,0 +1,15 @@
+package com.groupshare.DTOs;
+
+import java.util.List;
+import java.util.UUID;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Data
+public class OutputResponseBatchUpload {
+
+    private final UUID albumId;
+    private final List<OutputResponseBatchItem> results;
+}
@@ -0,0 +1,13 @@
+package com.groupshare.DTOs;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Data
+public class OutputResponseChunk {
+
+    private final Integer chunkNumber;
+    private final Long size;
+    private final String etag;
+}
@@ -12,4 +12,5 @@ public class OutputResponseGetMedia {
 
     private final UUID albumId;
     private final List<OutputResponseMedia> media;
+    private final String nextCursor;
 }
@@ -0,0 +1,16 @@
+package com.groupshare.DTOs;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Data
+public class OutputResponsePresignedDownload {
+
+    private final UUID mediaId;
+    private final String url;
+    private final Instant expiresAt;
+}
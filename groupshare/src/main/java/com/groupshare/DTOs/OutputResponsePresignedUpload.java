@@ -0,0 +1,17 @@
+package com.groupshare.DTOs;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Data
+public class OutputResponsePresignedUpload {
+
+    private final UUID uploadId;
+    private final String fileName;
+    private final String url;
+    private final Instant expiresAt;
+}
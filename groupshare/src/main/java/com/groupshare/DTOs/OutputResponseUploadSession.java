@@ -0,0 +1,19 @@
+package com.groupshare.DTOs;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Data
+public class OutputResponseUploadSession {
+
+    private final UUID sessionId;
+    private final String fileName;
+    private final Long chunkSize;
+    private final Instant expiresAt;
+    private final List<OutputResponseChunk> chunks;
+}
@@ -24,4 +24,17 @@ public class Album {
     private final String name;
     @Column(name = "created_at", nullable = false)
     private final Instant createdAt;
-}
\ No newline at end of file
+    // Shared bucket holding the album under an album-{id}/ prefix; null for a legacy per-album bucket
+    @Column(name = "bucket")
+    private String bucket;
+    // Bumped after every change to the album's media; validates cached listings
+    @Column(name = "changed_at")
+    private Instant changedAt;
+    // Tombstone: set when deletion is requested, the purger removes the content afterwards
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+    @Column(name = "purged_at")
+    private Instant purgedAt;
+    @Column(name = "purged_objects")
+    private Long purgedObjects;
+}
@@ -1,12 +1,49 @@
 package com.groupshare.Entitys;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface AlbumRepository extends JpaRepository<Album, UUID> {
 
-    Album findByName(String name);
+    Album findByNameAndDeletedAtIsNull(String name);
+
+    Optional<Album> findByIdAndDeletedAtIsNull(UUID id);
+
+    List<Album> findByDeletedAtIsNotNullAndPurgedAtIsNull();
+
+    // Live albums in id order, for walks that resume from the last album they reached
+    List<Album> findTop100ByDeletedAtIsNullOrderByIdAsc();
+
+    List<Album> findTop100ByDeletedAtIsNullAndIdGreaterThanOrderByIdAsc(UUID id);
+
+    // Only moves albums still on the legacy layout, so a second migrator run is a no-op
+    @Modifying
+    @Transactional
+    @Query("UPDATE Album a SET a.bucket = :bucket WHERE a.id = :id AND a.bucket IS NULL")
+    int assignBucket(@Param("id") UUID id, @Param("bucket") String bucket);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Album a SET a.changedAt = :changedAt WHERE a.id = :id")
+    int touch(@Param("id") UUID id, @Param("changedAt") Instant changedAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Album a SET a.purgedObjects = :purgedObjects WHERE a.id = :id")
+    int updatePurgedObjects(@Param("id") UUID id, @Param("purgedObjects") long purgedObjects);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Album a SET a.purgedAt = :purgedAt WHERE a.id = :id")
+    int markPurged(@Param("id") UUID id, @Param("purgedAt") Instant purgedAt);
 }
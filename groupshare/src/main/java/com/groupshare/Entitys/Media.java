@@ -3,21 +3,44 @@ package com.groupshare.Entitys;
 import java.time.Instant;
 import java.util.UUID;
 
+import org.hibernate.annotations.ColumnDefault;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 
 @Entity
-@Table(name = "media")
+@Table(name = "media", uniqueConstraints = @UniqueConstraint(name = "uk_media_album_file_name",
+        columnNames = { "album_id", "file_name" }))
 @RequiredArgsConstructor
 @NoArgsConstructor(force = true)
 @Data
 public class Media {
 
+    /**
+     * A single upload inserts its row as PENDING while the bytes are still on
+     * their way to storage, and flips it to COMMITTED once they are stored.
+     * Only committed media is ever listed or served.
+     */
+    public enum Status {
+        PENDING, COMMITTED
+    }
+
+    /**
+     * How the stored object is encoded. Size and hash always describe the
+     * original bytes; {@code storedSize} is the size in storage.
+     */
+    public enum Codec {
+        IDENTITY, GZIP
+    }
+
     @Id
     @Column(name = "id", nullable = false)
     private final UUID id;
@@ -33,4 +56,19 @@ public class Media {
     private final Instant uploadedAt;
     @Column(name = "hash", nullable = false)
     private final String hash;
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'COMMITTED'")
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status = Status.COMMITTED;
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'IDENTITY'")
+    @Column(name = "codec", nullable = false, length = 16)
+    private Codec codec = Codec.IDENTITY;
+    @Column(name = "stored_size")
+    private Long storedSize;
+
+    /** Bytes the stored object takes up, the file size unless it is encoded. */
+    public long storedBytes() {
+        return storedSize != null ? storedSize : fileSize;
+    }
 }
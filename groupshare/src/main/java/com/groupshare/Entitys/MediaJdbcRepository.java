@@ -0,0 +1,72 @@
+package com.groupshare.Entitys;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Set-based writes on the media table that JPA would otherwise issue one row
+ * (and one extra SELECT per assigned id) at a time.
+ */
+@Repository
+public class MediaJdbcRepository {
+
+    private static final String INSERT_MEDIA = "INSERT INTO media "
+            + "(id, album_id, file_name, file_type, file_size, uploaded_at, hash, status, codec, stored_size) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // A name taken in the meantime skips the row instead of failing the whole batch
+    private static final String INSERT_MEDIA_UNLESS_TAKEN = INSERT_MEDIA
+            + " ON CONFLICT (album_id, file_name) DO NOTHING";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the rows whose name is still free in their album and returns the
+     * ones that were skipped.
+     */
+    public List<Media> insertAll(List<Media> media) {
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_MEDIA_UNLESS_TAKEN, media, media.size(),
+                (statement, row) -> bind(statement, row));
+        List<Media> skipped = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    skipped.add(media.get(index));
+                }
+                index++;
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Plain INSERT, so a taken name surfaces as a
+     * {@link org.springframework.dao.DuplicateKeyException}.
+     */
+    public void insert(Media media) {
+        jdbcTemplate.update(INSERT_MEDIA, statement -> bind(statement, media));
+    }
+
+    private static void bind(PreparedStatement statement, Media row) throws SQLException {
+        statement.setObject(1, row.getId());
+        statement.setObject(2, row.getAlbumId());
+        statement.setString(3, row.getFileName());
+        statement.setString(4, row.getFileType());
+        statement.setLong(5, row.getFileSize());
+        statement.setObject(6, row.getUploadedAt().atOffset(ZoneOffset.UTC));
+        statement.setString(7, row.getHash());
+        statement.setString(8, row.getStatus().name());
+        statement.setString(9, row.getCodec().name());
+        statement.setObject(10, row.getStoredSize(), Types.BIGINT);
+    }
+}
@@ -1,16 +1,78 @@
 package com.groupshare.Entitys;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface MediaRepository extends JpaRepository<Media, UUID> {
 
     List<Media> findByAlbumId(UUID albumId);
 
+    Optional<Media> findByIdAndStatus(UUID id, Media.Status status);
+
+    default Optional<Media> findCommittedById(UUID id) {
+        return findByIdAndStatus(id, Media.Status.COMMITTED);
+    }
+
+    @Query("SELECT m FROM Media m WHERE m.id IN :ids AND m.status = com.groupshare.Entitys.Media.Status.COMMITTED "
+            + "AND EXISTS (SELECT 1 FROM Album a WHERE a.id = m.albumId AND a.deletedAt IS NULL)")
+    List<Media> findLiveByIdIn(@Param("ids") Collection<UUID> ids);
+
+    // Pending rows count as well: they hold their name until committed or rolled back
     Optional<Media> findByAlbumIdAndFileName(UUID albumId, String fileName);
+
+    @Query("SELECT m.fileName FROM Media m WHERE m.albumId = :albumId AND m.fileName IN :fileNames")
+    Set<String> findExistingFileNames(@Param("albumId") UUID albumId,
+            @Param("fileNames") Collection<String> fileNames);
+
+    // The join hides the content of albums that are waiting to be purged.
+    @Query(value = "SELECT m.* FROM media m JOIN albums a ON a.id = m.album_id AND a.deleted_at IS NULL "
+            + "WHERE m.album_id = :albumId AND m.status = 'COMMITTED' "
+            + "ORDER BY m.uploaded_at, m.id LIMIT :limit", nativeQuery = true)
+    List<Media> findFirstPage(@Param("albumId") UUID albumId, @Param("limit") int limit);
+
+    // Row-value comparison keeps the seek on the (album_id, uploaded_at, id) order.
+    @Query(value = "SELECT m.* FROM media m JOIN albums a ON a.id = m.album_id AND a.deleted_at IS NULL "
+            + "WHERE m.album_id = :albumId AND m.status = 'COMMITTED' AND (m.uploaded_at, m.id) > (:uploadedAt, :id) "
+            + "ORDER BY m.uploaded_at, m.id LIMIT :limit", nativeQuery = true)
+    List<Media> findPageAfter(@Param("albumId") UUID albumId, @Param("uploadedAt") Instant uploadedAt,
+            @Param("id") UUID id, @Param("limit") int limit);
+
+    // Key order, which matches the object listing: a uuid sorts like its lowercase text form.
+    @Query(value = "SELECT m.* FROM media m WHERE m.album_id = :albumId ORDER BY m.id LIMIT :limit",
+            nativeQuery = true)
+    List<Media> findFirstByKey(@Param("albumId") UUID albumId, @Param("limit") int limit);
+
+    @Query(value = "SELECT m.* FROM media m WHERE m.album_id = :albumId AND m.id > :id ORDER BY m.id LIMIT :limit",
+            nativeQuery = true)
+    List<Media> findByKeyAfter(@Param("albumId") UUID albumId, @Param("id") UUID id, @Param("limit") int limit);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Media m SET m.status = com.groupshare.Entitys.Media.Status.COMMITTED, m.fileSize = :fileSize, "
+            + "m.storedSize = :storedSize, m.hash = :hash "
+            + "WHERE m.id = :id AND m.status = com.groupshare.Entitys.Media.Status.PENDING")
+    int commitPending(@Param("id") UUID id, @Param("fileSize") long fileSize, @Param("storedSize") Long storedSize,
+            @Param("hash") String hash);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Media m WHERE m.id = :id AND m.status = com.groupshare.Entitys.Media.Status.PENDING")
+    int deletePending(@Param("id") UUID id);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Media m WHERE m.albumId = :albumId")
+    int deleteAllByAlbumIdInBulk(@Param("albumId") UUID albumId);
 }
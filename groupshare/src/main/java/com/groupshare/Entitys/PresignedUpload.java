@@ -0,0 +1,57 @@
+package com.groupshare.Entitys;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * An upload a client sends straight to storage through a presigned URL. The
+ * client writes to {@code stagingObjectName}, which is copied to
+ * {@code objectName} when the upload is finalized and becomes a {@link Media}
+ * row. The row is kept until it expires, so the staging key is cleaned up even
+ * when the URL is used again; like upload sessions it pins its object location.
+ */
+@Entity
+@Table(name = "presigned_uploads")
+@RequiredArgsConstructor
+@NoArgsConstructor(force = true)
+@Data
+public class PresignedUpload {
+
+    @Id
+    @Column(name = "id", nullable = false)
+    private final UUID id;
+    @Column(name = "album_id", nullable = false)
+    private final UUID albumId;
+    @Column(name = "media_id", nullable = false)
+    private final UUID mediaId;
+    @Column(name = "file_name", nullable = false)
+    private final String fileName;
+    @Column(name = "file_type", nullable = false)
+    private final String fileType;
+    @Column(name = "file_size", nullable = false)
+    private final Long fileSize;
+    // Hex MD5 announced by the client, checked against the object's ETag; optional
+    @Column(name = "md5")
+    private final String md5;
+    @Column(name = "bucket", nullable = false)
+    private final String bucket;
+    @Column(name = "object_name", nullable = false)
+    private final String objectName;
+    @Column(name = "staging_object_name", nullable = false)
+    private final String stagingObjectName;
+    @Column(name = "created_at", nullable = false)
+    private final Instant createdAt;
+    @Column(name = "expires_at", nullable = false)
+    private final Instant expiresAt;
+
+    @Column(name = "finalized_at")
+    private Instant finalizedAt;
+}
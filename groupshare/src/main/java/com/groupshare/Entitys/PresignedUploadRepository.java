@@ -0,0 +1,39 @@
+package com.groupshare.Entitys;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface PresignedUploadRepository extends JpaRepository<PresignedUpload, UUID> {
+
+    List<PresignedUpload> findByExpiresAtBefore(Instant instant);
+
+    boolean existsByAlbumId(UUID albumId);
+
+    // Finalized uploads hand their name over to the media row
+    boolean existsByAlbumIdAndFileNameAndFinalizedAtIsNull(UUID albumId, String fileName);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PresignedUpload p WHERE p.albumId = :albumId")
+    int deleteAllByAlbumIdInBulk(@Param("albumId") UUID albumId);
+
+    // Only one caller can move a row from open to finalized
+    @Modifying
+    @Transactional
+    @Query("UPDATE PresignedUpload p SET p.finalizedAt = :finalizedAt WHERE p.id = :id AND p.finalizedAt IS NULL")
+    int claim(@Param("id") UUID id, @Param("finalizedAt") Instant finalizedAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PresignedUpload p SET p.finalizedAt = NULL WHERE p.id = :id")
+    int release(@Param("id") UUID id);
+}
@@ -0,0 +1,38 @@
+package com.groupshare.Entitys;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Where the storage reconciler stopped, so a pass cut short by a restart
+ * resumes instead of starting over. Cleared when a pass completes.
+ */
+@Entity
+@Table(name = "reconciler_checkpoints")
+@RequiredArgsConstructor
+@NoArgsConstructor(force = true)
+@Data
+public class ReconcilerCheckpoint {
+
+    @Id
+    @Column(name = "name", nullable = false)
+    private final String name;
+    // Album being walked; null before the first one of a pass
+    @Column(name = "album_id")
+    private UUID albumId;
+    // Last media id of that album whose row and object were both checked
+    @Column(name = "after_media_id")
+    private UUID afterMediaId;
+    @Column(name = "pass_started_at")
+    private Instant passStartedAt;
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,8 @@
+package com.groupshare.Entitys;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReconcilerCheckpointRepository extends JpaRepository<ReconcilerCheckpoint, String> {
+}
@@ -0,0 +1,41 @@
+package com.groupshare.Entitys;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Written in the same transaction as a PENDING {@link Media} row and removed
+ * when that row is committed or rolled back. An entry that outlives its
+ * upload marks one interrupted by a crash, and records where its object was
+ * headed.
+ */
+@Entity
+@Table(name = "upload_outbox")
+@RequiredArgsConstructor
+@NoArgsConstructor(force = true)
+@Data
+public class UploadOutboxEntry {
+
+    @Id
+    @Column(name = "media_id", nullable = false)
+    private final UUID mediaId;
+    @Column(name = "album_id", nullable = false)
+    private final UUID albumId;
+    @Column(name = "bucket", nullable = false)
+    private final String bucket;
+    @Column(name = "object_name", nullable = false)
+    private final String objectName;
+    // -1 when the upload was streamed without a Content-Length
+    @Column(name = "file_size", nullable = false)
+    private final Long fileSize;
+    @Column(name = "created_at", nullable = false)
+    private final Instant createdAt;
+}
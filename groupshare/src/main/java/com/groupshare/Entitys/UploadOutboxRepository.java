@@ -0,0 +1,28 @@
+package com.groupshare.Entitys;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface UploadOutboxRepository extends JpaRepository<UploadOutboxEntry, UUID> {
+
+    List<UploadOutboxEntry> findByCreatedAtBefore(Instant instant);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UploadOutboxEntry e WHERE e.mediaId = :mediaId")
+    int deleteByMediaId(@Param("mediaId") UUID mediaId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UploadOutboxEntry e WHERE e.albumId = :albumId")
+    int deleteAllByAlbumIdInBulk(@Param("albumId") UUID albumId);
+}
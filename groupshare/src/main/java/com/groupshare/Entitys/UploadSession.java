@@ -0,0 +1,46 @@
+package com.groupshare.Entitys;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A resumable upload backed by a MinIO multipart upload. The location is
+ * fixed when the session opens so a layout migration cannot move it mid-way.
+ */
+@Entity
+@Table(name = "upload_sessions")
+@RequiredArgsConstructor
+@NoArgsConstructor(force = true)
+@Data
+public class UploadSession {
+
+    @Id
+    @Column(name = "id", nullable = false)
+    private final UUID id;
+    @Column(name = "album_id", nullable = false)
+    private final UUID albumId;
+    @Column(name = "media_id", nullable = false)
+    private final UUID mediaId;
+    @Column(name = "file_name", nullable = false)
+    private final String fileName;
+    @Column(name = "file_type", nullable = false)
+    private final String fileType;
+    @Column(name = "bucket", nullable = false)
+    private final String bucket;
+    @Column(name = "object_name", nullable = false)
+    private final String objectName;
+    @Column(name = "upload_id", nullable = false)
+    private final String uploadId;
+    @Column(name = "created_at", nullable = false)
+    private final Instant createdAt;
+    @Column(name = "expires_at", nullable = false)
+    private final Instant expiresAt;
+}
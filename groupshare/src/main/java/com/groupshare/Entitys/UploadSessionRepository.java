@@ -0,0 +1,29 @@
+package com.groupshare.Entitys;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+
+    List<UploadSession> findByExpiresAtBefore(Instant instant);
+
+    List<UploadSession> findByAlbumId(UUID albumId);
+
+    boolean existsByAlbumId(UUID albumId);
+
+    boolean existsByAlbumIdAndFileName(UUID albumId, String fileName);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UploadSession s WHERE s.albumId = :albumId")
+    int deleteAllByAlbumIdInBulk(@Param("albumId") UUID albumId);
+}
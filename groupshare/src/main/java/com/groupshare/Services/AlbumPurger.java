@@ -0,0 +1,162 @@
+package com.groupshare.Services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.groupshare.Entitys.Album;
+import com.groupshare.Entitys.AlbumRepository;
+import com.groupshare.Entitys.MediaRepository;
+import com.groupshare.Entitys.PresignedUploadRepository;
+import com.groupshare.Entitys.UploadOutboxRepository;
+import com.groupshare.Entitys.UploadSession;
+import com.groupshare.Entitys.UploadSessionRepository;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Storage.StoredObject;
+import com.groupshare.Utils.Helpers;
+import com.groupshare.Utils.MultipartMinioClient;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Removes the content of tombstoned albums in the background: objects go in
+ * batched multi-object deletes (the album's prefix in a shared bucket, or its
+ * whole legacy bucket), media rows in one bulk DELETE. Progress is
+ * written to the album row so it can be reported while the purge runs.
+ */
+@Service
+public class AlbumPurger {
+
+    private static final Logger log = LoggerFactory.getLogger(AlbumPurger.class);
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private MediaRepository mediaRepository;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private PresignedUploadRepository presignedUploadRepository;
+
+    @Autowired
+    private UploadOutboxRepository uploadOutboxRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private MultipartMinioClient multipartMinioClient;
+
+    @Autowired
+    private StorageLayout storageLayout;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("album-purger").factory());
+
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+
+    public void schedule(UUID albumId) {
+        if (queued.add(albumId)) {
+            executor.submit(() -> {
+                try {
+                    purge(albumId);
+                } finally {
+                    queued.remove(albumId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Picks up tombstones whose purge never finished, e.g. after a restart.
+     */
+    @Scheduled(fixedDelayString = "${groupshare.album-purge.sweep-interval:PT1M}")
+    public void sweep() {
+        for (Album album : albumRepository.findByDeletedAtIsNotNullAndPurgedAtIsNull()) {
+            schedule(album.getId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void purge(UUID albumId) {
+        Album album = albumRepository.findById(albumId).orElse(null);
+        if (album == null || album.getDeletedAt() == null || album.getPurgedAt() != null) {
+            return;
+        }
+
+        String bucketName = Helpers.getAlbumName(albumId);
+        try {
+            // Pending multipart uploads would keep the bucket from being removed
+            for (UploadSession session : uploadSessionRepository.findByAlbumId(albumId)) {
+                try {
+                    multipartMinioClient.abortMultipartUpload(session.getBucket(), session.getObjectName(),
+                            session.getUploadId());
+                } catch (Exception e) {
+                    log.warn("Error aborting upload session {}", session.getId(), e);
+                }
+            }
+
+            // An album caught mid-migration has objects in both places
+            long removed = 0;
+            if (album.getBucket() != null) {
+                removed = removeAll(albumId, album.getBucket(), storageLayout.prefixOf(album), removed);
+            }
+            if (storageBackend.bucketExists(bucketName)) {
+                removed = removeAll(albumId, bucketName, "", removed);
+                storageBackend.removeBucket(bucketName);
+            }
+
+            uploadSessionRepository.deleteAllByAlbumIdInBulk(albumId);
+            presignedUploadRepository.deleteAllByAlbumIdInBulk(albumId);
+            uploadOutboxRepository.deleteAllByAlbumIdInBulk(albumId);
+            mediaRepository.deleteAllByAlbumIdInBulk(albumId);
+            albumRepository.markPurged(albumId, Instant.now());
+        } catch (Exception e) {
+            // Left for the next sweep; every step above is idempotent
+            log.warn("Error purging album {}", albumId, e);
+        }
+    }
+
+    private long removeAll(UUID albumId, String bucketName, String prefix, long removed) throws Exception {
+        List<String> batch = new ArrayList<>(Helpers.MAX_KEYS_PER_DELETE);
+        for (StoredObject object : storageBackend.list(bucketName, prefix)) {
+            batch.add(object.getObjectName());
+            if (batch.size() == Helpers.MAX_KEYS_PER_DELETE) {
+                removed += removeBatch(bucketName, batch);
+                albumRepository.updatePurgedObjects(albumId, removed);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            removed += removeBatch(bucketName, batch);
+            albumRepository.updatePurgedObjects(albumId, removed);
+        }
+        return removed;
+    }
+
+    private int removeBatch(String bucketName, List<String> batch) throws Exception {
+        List<String> failed = storageBackend.deleteAll(bucketName, batch);
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException(failed.size() + " objects could not be removed from " + bucketName);
+        }
+        return batch.size();
+    }
+}
@@ -0,0 +1,276 @@
+package com.groupshare.Services;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.groupshare.Entitys.Album;
+import com.groupshare.Entitys.AlbumRepository;
+import com.groupshare.Entitys.Media;
+import com.groupshare.Entitys.MediaRepository;
+import com.groupshare.Utils.MediaCursor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Keeps live albums, committed media and listing pages in memory, bounded by
+ * size and {@code ttl}. Changes evict the affected entries here and, through
+ * Postgres NOTIFY, on every other node; each node LISTENs on a connection of
+ * its own. While that connection is down the caches are bypassed, and they
+ * are cleared whenever it comes back, since notifications sent in between are
+ * lost.
+ *
+ * <p>Listing pages are keyed by the album's {@code changedAt}, so a change
+ * only has to evict the album: pages of the old version are never looked up
+ * again and age out.
+ */
+@Service
+public class MetadataCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MetadataCache.class);
+
+    private static final String CHANNEL = "groupshare_metadata";
+    private static final String ALBUM = "album";
+    private static final String MEDIA = "media";
+    // NOTIFY payloads are limited to 8000 bytes
+    private static final int IDS_PER_NOTIFY = 100;
+
+    @Value("${groupshare.metadata-cache.ttl:PT10M}")
+    private Duration ttl;
+
+    @Value("${groupshare.metadata-cache.max-albums:10000}")
+    private long maxAlbums;
+
+    @Value("${groupshare.metadata-cache.max-media:100000}")
+    private long maxMedia;
+
+    // Counted in rows over all cached pages
+    @Value("${groupshare.metadata-cache.max-listed-media:1000000}")
+    private long maxListedMedia;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private MediaRepository mediaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Tells this node's own notifications apart from everyone else's
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private Cache<UUID, Album> albums;
+    private Cache<UUID, Media> media;
+    private Cache<PageKey, List<Media>> pages;
+
+    private volatile boolean listening;
+    private volatile boolean running;
+    private Thread listener;
+
+    @RequiredArgsConstructor
+    @Data
+    private static class PageKey {
+        private final UUID albumId;
+        private final Instant changedAt;
+        private final MediaCursor after;
+        private final int limit;
+    }
+
+    @PostConstruct
+    public void start() {
+        albums = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maxAlbums)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .<UUID, Album>build(), "albums");
+        media = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maxMedia)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .<UUID, Media>build(), "media");
+        pages = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumWeight(maxListedMedia)
+                .<PageKey, List<Media>>weigher((key, rows) -> Math.max(rows.size(), 1))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .<PageKey, List<Media>>build(), "media_pages");
+
+        running = true;
+        listener = Thread.ofPlatform().name("metadata-cache-listener").daemon().start(this::listen);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        listener.interrupt();
+    }
+
+    /** The album unless it is missing or tombstoned. */
+    public Album findAlbum(UUID albumId) {
+        if (!listening) {
+            return albumRepository.findByIdAndDeletedAtIsNull(albumId).orElse(null);
+        }
+        // A load that races an eviction is dropped along with it
+        return albums.get(albumId, id -> albumRepository.findByIdAndDeletedAtIsNull(id).orElse(null));
+    }
+
+    /** The media unless it is missing or still pending. */
+    public Media findMedia(UUID mediaId) {
+        if (!listening) {
+            return mediaRepository.findCommittedById(mediaId).orElse(null);
+        }
+        return media.get(mediaId, id -> mediaRepository.findCommittedById(id).orElse(null));
+    }
+
+    /**
+     * Up to {@code limit} committed media of {@code album} after the cursor,
+     * in listing order. The list is shared and must not be modified.
+     */
+    public List<Media> findPage(Album album, MediaCursor after, int limit) {
+        if (!listening) {
+            return loadPage(album.getId(), after, limit);
+        }
+        Instant changedAt = album.getChangedAt() != null ? album.getChangedAt() : album.getCreatedAt();
+        return pages.get(new PageKey(album.getId(), changedAt, after, limit),
+                key -> List.copyOf(loadPage(key.getAlbumId(), key.getAfter(), key.getLimit())));
+    }
+
+    /** Bumps the album's {@code changedAt} and evicts it on every node. */
+    public void touch(UUID albumId) {
+        albumRepository.touch(albumId, Instant.now());
+        albumChanged(albumId);
+    }
+
+    /** To be called once a change to the album row has been committed. */
+    public void albumChanged(UUID albumId) {
+        albums.invalidate(albumId);
+        broadcast(ALBUM, List.of(albumId));
+    }
+
+    /** To be called once the rows are deleted. */
+    public void mediaRemoved(Collection<UUID> mediaIds) {
+        media.invalidateAll(mediaIds);
+        broadcast(MEDIA, mediaIds);
+    }
+
+    private List<Media> loadPage(UUID albumId, MediaCursor after, int limit) {
+        return after == null
+                ? mediaRepository.findFirstPage(albumId, limit)
+                : mediaRepository.findPageAfter(albumId, after.getUploadedAt(), after.getId(), limit);
+    }
+
+    private void broadcast(String kind, Collection<UUID> ids) {
+        List<UUID> batch = new ArrayList<>(IDS_PER_NOTIFY);
+        for (UUID id : ids) {
+            batch.add(id);
+            if (batch.size() == IDS_PER_NOTIFY) {
+                notify(kind, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            notify(kind, batch);
+        }
+    }
+
+    private void notify(String kind, List<UUID> ids) {
+        StringBuilder payload = new StringBuilder(nodeId).append(' ').append(kind);
+        for (UUID id : ids) {
+            payload.append(' ').append(id);
+        }
+        try {
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload.toString());
+        } catch (DataAccessException e) {
+            // Other nodes catch up once their entries expire
+            log.warn("Error broadcasting cache invalidation", e);
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password);
+                    Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+                clear();
+                listening = true;
+
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] received = notifications.getNotifications(1000);
+                    if (received != null) {
+                        for (PGNotification notification : received) {
+                            apply(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                listening = false;
+                if (running) {
+                    log.warn("Error listening for cache invalidations", e);
+                    try {
+                        Thread.sleep(Duration.ofSeconds(5));
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void apply(String payload) {
+        String[] parts = payload.split(" ");
+        if (parts.length < 2 || parts[0].equals(nodeId)) {
+            return;
+        }
+        Cache<UUID, ?> cache = ALBUM.equals(parts[1]) ? albums : MEDIA.equals(parts[1]) ? media : null;
+        if (cache == null) {
+            return;
+        }
+        for (int i = 2; i < parts.length; i++) {
+            cache.invalidate(UUID.fromString(parts[i]));
+        }
+    }
+
+    private void clear() {
+        albums.invalidateAll();
+        media.invalidateAll();
+        pages.invalidateAll();
+    }
+}
@@ -0,0 +1,196 @@
+package com.groupshare.Services;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.groupshare.Entitys.Media;
+import com.groupshare.Utils.Helpers;
+import com.groupshare.Utils.MultipartMinioClient;
+
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.messages.Part;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Uploads objects to MinIO. Objects below {@code minio.multipart.threshold} go
+ * through a single putObject; larger ones are cut into parts that are uploaded
+ * in parallel, each part being retried on its own.
+ */
+@Service
+@ConditionalOnProperty(name = "groupshare.storage.backend", havingValue = "minio", matchIfMissing = true)
+public class MultipartUploadEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(MultipartUploadEngine.class);
+
+    // Each part is buffered in a byte array, which caps it well below S3's 5 GiB limit
+    private static final long MAX_PART_SIZE = Integer.MAX_VALUE - 8;
+
+    @Value("${minio.multipart.threshold:64MB}")
+    private DataSize threshold;
+
+    @Value("${minio.multipart.part-size:16MB}")
+    private DataSize partSize;
+
+    @Value("${minio.multipart.parallelism:4}")
+    private int parallelism;
+
+    @Value("${minio.multipart.max-attempts:3}")
+    private int maxAttempts;
+
+    @Autowired
+    private MinioClient minioClient;
+
+    @Autowired
+    private MultipartMinioClient multipartMinioClient;
+
+    @Autowired
+    @Qualifier("minioPartUploadExecutor")
+    private ExecutorService partExecutor;
+
+    private int bytesPerPart;
+
+    @PostConstruct
+    public void init() {
+        if (partSize.toBytes() > MAX_PART_SIZE) {
+            throw new IllegalStateException("minio.multipart.part-size must not exceed " + MAX_PART_SIZE
+                    + " bytes, got " + partSize);
+        }
+        bytesPerPart = (int) Math.max(partSize.toBytes(), Helpers.MIN_PART_SIZE);
+    }
+
+    /**
+     * Streams {@code stream} into {@code bucketName} under {@code objectName}. A
+     * negative {@code Media.fileSize} means the length is unknown; the first part
+     * is read before deciding, and a stream that ends inside it goes through a
+     * single putObject like a small object of known size.
+     */
+    public void upload(String bucketName, String objectName, Media media, InputStream stream) throws Exception {
+        long size = media.getFileSize();
+        if (size >= 0 && size < threshold.toBytes()) {
+            putObject(bucketName, objectName, media, stream, size);
+            return;
+        }
+
+        byte[] first = null;
+        if (size < 0) {
+            first = stream.readNBytes(bytesPerPart);
+            if (first.length < bytesPerPart) {
+                putObject(bucketName, objectName, media, new ByteArrayInputStream(first), first.length);
+                return;
+            }
+        }
+
+        String uploadId = multipartMinioClient.createMultipartUpload(bucketName, objectName, headers(media));
+
+        Semaphore inFlight = new Semaphore(parallelism);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        List<Future<Part>> parts = new ArrayList<>();
+        try {
+            int partNumber = 1;
+            while (failure.get() == null) {
+                byte[] buffer = first != null ? first : stream.readNBytes(bytesPerPart);
+                first = null;
+                if (buffer.length == 0 && partNumber > 1) {
+                    break;
+                }
+
+                // Bounds memory to (parallelism + 1) part buffers per upload.
+                inFlight.acquire();
+                int number = partNumber++;
+                parts.add(partExecutor.submit(() -> {
+                    try {
+                        return uploadPart(bucketName, objectName, uploadId, number, buffer);
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+
+                if (buffer.length < bytesPerPart) {
+                    break;
+                }
+            }
+
+            Part[] completed = new Part[parts.size()];
+            for (int i = 0; i < completed.length; i++) {
+                completed[i] = parts.get(i).get();
+            }
+            multipartMinioClient.completeMultipartUpload(bucketName, objectName, uploadId, completed);
+        } catch (Exception e) {
+            parts.forEach(part -> part.cancel(true));
+            abortQuietly(bucketName, objectName, uploadId);
+            if (e instanceof ExecutionException && e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void putObject(String bucketName, String objectName, Media media, InputStream stream, long size)
+            throws Exception {
+        minioClient.putObject(PutObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .stream(stream, size, -1)
+                .userMetadata(Map.of(
+                        "filename", media.getFileName(),
+                        "albumid", media.getAlbumId().toString(),
+                        "uploadedat", media.getUploadedAt().toString(),
+                        "content-type", media.getFileType()))
+                .contentType(media.getFileType())
+                .build());
+    }
+
+    private Part uploadPart(String bucketName, String objectName, String uploadId, int partNumber, byte[] data)
+            throws Exception {
+        for (int attempt = 1;; attempt++) {
+            try {
+                String etag = multipartMinioClient.uploadPart(bucketName, objectName, uploadId, partNumber, data,
+                        data.length);
+                return new Part(partNumber, etag);
+            } catch (Exception e) {
+                if (attempt >= maxAttempts || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                Thread.sleep(100L << attempt);
+            }
+        }
+    }
+
+    private void abortQuietly(String bucketName, String objectName, String uploadId) {
+        try {
+            multipartMinioClient.abortMultipartUpload(bucketName, objectName, uploadId);
+        } catch (Exception e) {
+            log.warn("Error aborting multipart upload {}", uploadId, e);
+        }
+    }
+
+    private static Map<String, String> headers(Media media) {
+        return Map.of(
+                "Content-Type", media.getFileType(),
+                "x-amz-meta-filename", media.getFileName(),
+                "x-amz-meta-albumid", media.getAlbumId().toString(),
+                "x-amz-meta-uploadedat", media.getUploadedAt().toString(),
+                "x-amz-meta-content-type", media.getFileType());
+    }
+}
@@ -0,0 +1,227 @@
+package com.groupshare.Services;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.groupshare.Entitys.Album;
+import com.groupshare.Entitys.Media;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Utils.ByteRange;
+import com.groupshare.Utils.Constants;
+import com.groupshare.Utils.PreviewSize;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Renders the {@link PreviewSize} derivatives of image uploads on a small
+ * bounded pool, off the request path. The original is decoded once, already
+ * subsampled close to the largest size, and every preview is scaled from that.
+ * Work that does not fit in the queue is dropped; the preview endpoint
+ * schedules it again when it has to fall back to the original. Media that
+ * could not be decoded is remembered for {@code failure-ttl} and not
+ * scheduled again meanwhile, so a broken file is not re-read on every request.
+ */
+@Service
+public class PreviewGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(PreviewGenerator.class);
+
+    @Value("${groupshare.previews.pool-size:2}")
+    private int poolSize;
+
+    @Value("${groupshare.previews.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${groupshare.previews.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    // Guards against decompression bombs: a small file can declare a huge canvas
+    @Value("${groupshare.previews.max-pixels:100000000}")
+    private long maxPixels;
+
+    @Value("${groupshare.previews.failure-ttl:PT1H}")
+    private Duration failureTtl;
+
+    @Value("${groupshare.previews.max-failures:10000}")
+    private long maxFailures;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private StorageLayout storageLayout;
+
+    @Autowired
+    private StorageCodec storageCodec;
+
+    private ThreadPoolExecutor executor;
+
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+
+    // Expires so that failures caused by storage errors are retried eventually
+    private Cache<UUID, Boolean> failed;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("preview-", 0).daemon(true).factory());
+        failed = Caffeine.newBuilder()
+                .maximumSize(maxFailures)
+                .expireAfterWrite(failureTtl)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public static boolean supports(Media media) {
+        return Constants.PREVIEW_TYPES.contains(media.getFileType());
+    }
+
+    /** Whether an earlier attempt found the media undecodable or could not read it. */
+    public boolean hasFailed(UUID mediaId) {
+        return failed.getIfPresent(mediaId) != null;
+    }
+
+    public void schedule(Album album, Media media) {
+        if (!supports(media) || hasFailed(media.getId()) || !queued.add(media.getId())) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    if (!generate(album, media)) {
+                        failed.put(media.getId(), true);
+                    }
+                } catch (Exception e) {
+                    failed.put(media.getId(), true);
+                    log.warn("Error generating previews for {}", media.getId(), e);
+                } finally {
+                    queued.remove(media.getId());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.remove(media.getId());
+        }
+    }
+
+    /** Returns {@code false} when the original cannot be decoded or is too large to. */
+    private boolean generate(Album album, Media media) throws Exception {
+        BufferedImage source;
+        try (InputStream original = storageCodec.decode(media, storageBackend.get(storageLayout.bucketOf(album),
+                storageLayout.objectNameOf(album, media.getId()), ByteRange.full(media.storedBytes())))) {
+            source = decode(original, PreviewSize.WEB.getMaxDimension());
+        }
+        if (source == null) {
+            return false;
+        }
+
+        String bucketName = storageLayout.bucketOf(album);
+        for (PreviewSize size : PreviewSize.values()) {
+            byte[] jpeg = encode(scale(source, size.getMaxDimension()));
+            Media preview = new Media(media.getId(), media.getAlbumId(), media.getFileName(), "image/jpeg",
+                    (long) jpeg.length, Instant.now(), null);
+            storageBackend.put(bucketName, storageLayout.previewObjectNameOf(album, media.getId(), size), preview,
+                    new ByteArrayInputStream(jpeg));
+        }
+        return true;
+    }
+
+    /**
+     * Decodes with the coarsest subsampling that still leaves the longest edge
+     * at least {@code targetDimension}, so large originals never fully land on
+     * the heap.
+     */
+    private BufferedImage decode(InputStream original, int targetDimension) throws Exception {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    return null;
+                }
+                int subsampling = Math.max(1, Math.max(width, height) / targetDimension);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int maxDimension) {
+        double factor = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * factor));
+
+        // JPEG has no alpha channel, so transparency is flattened onto white
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image) throws Exception {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,148 @@
+package com.groupshare.Services;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.groupshare.Entitys.Media;
+import com.groupshare.Utils.ByteRange;
+import com.groupshare.Utils.Constants;
+import com.groupshare.Utils.GzipEncodingInputStream;
+
+/**
+ * Gzips the types in {@link Constants#COMPRESSIBLE_TYPES} on their way into
+ * storage and undoes it on the way out. Both directions stream, so memory use
+ * does not grow with the file. The codec is recorded on the media row; size
+ * and hash keep describing the original bytes.
+ */
+@Service
+public class StorageCodec {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${groupshare.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${groupshare.compression.level:6}")
+    private int level;
+
+    // Below this the gzip framing eats most of the savings
+    @Value("${groupshare.compression.min-size:1KB}")
+    private DataSize minSize;
+
+    /** A negative {@code fileSize} means the length is not known up front. */
+    public Media.Codec codecFor(String fileType, long fileSize) {
+        if (!enabled || !Constants.COMPRESSIBLE_TYPES.contains(fileType)
+                || (fileSize >= 0 && fileSize < minSize.toBytes())) {
+            return Media.Codec.IDENTITY;
+        }
+        return Media.Codec.GZIP;
+    }
+
+    public GzipEncodingInputStream encode(InputStream original) {
+        return new GzipEncodingInputStream(original, level);
+    }
+
+    /** The original bytes of {@code stored}, which holds the whole object. */
+    public InputStream decode(Media media, InputStream stored) throws IOException {
+        return media.getCodec() == Media.Codec.GZIP ? new GZIPInputStream(stored, BUFFER_SIZE) : stored;
+    }
+
+    /**
+     * {@code range} of the original bytes. Encoded objects cannot be read from
+     * the middle, so the bytes ahead of the range are decoded and skipped.
+     */
+    public InputStream decode(Media media, InputStream stored, ByteRange range) throws IOException {
+        InputStream original = decode(media, stored);
+        if (media.getCodec() == Media.Codec.IDENTITY || !range.isPartial()) {
+            return original;
+        }
+        original.skipNBytes(range.getOffset());
+        return new LimitedInputStream(original, range.getLength());
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header allows gzip. A missing header
+     * allows anything, but browsers always send one, so that case is read as
+     * a client that does not negotiate and gets the original bytes.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase();
+            boolean accepted = true;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        accepted = Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        accepted = false;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return accepted;
+            }
+            if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return wildcard != null && wildcard;
+    }
+
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read();
+            if (read >= 0) {
+                remaining--;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.groupshare.Services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.groupshare.Entitys.Album;
+import com.groupshare.Entitys.AlbumRepository;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Utils.Helpers;
+import com.groupshare.Utils.PreviewSize;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Decides where an album's objects live.
+ *
+ * <p>Albums with a {@code bucket} share that bucket and keep their objects
+ * under an {@code album-{id}/} prefix. Albums without one use the legacy
+ * layout of one {@code album-{id}} bucket per album, keyed by media id.
+ * {@code minio.layout} only chooses the layout of newly created albums;
+ * {@link StorageLayoutMigrator} moves existing ones over.
+ */
+@Service
+public class StorageLayout {
+
+    public static final String SHARED = "shared";
+
+    @Value("${minio.layout:bucket-per-album}")
+    private String layout;
+
+    @Value("${minio.shared-bucket:groupshare-media}")
+    private String sharedBucket;
+
+    // While the migration runs an album's objects can be in either location
+    @Value("${minio.layout-migration.enabled:false}")
+    private boolean migrationEnabled;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @PostConstruct
+    public void ensureSharedBucket() throws Exception {
+        if (isShared()) {
+            storageBackend.createBucket(sharedBucket);
+        }
+    }
+
+    public boolean isShared() {
+        return SHARED.equals(layout);
+    }
+
+    public String getSharedBucket() {
+        return sharedBucket;
+    }
+
+    /**
+     * Prepares storage for a new album; in the shared layout this is only a
+     * field on the row, the backend is not called.
+     */
+    public void provision(Album album) throws Exception {
+        if (isShared()) {
+            album.setBucket(sharedBucket);
+            return;
+        }
+        storageBackend.createBucket(Helpers.getAlbumName(album.getId()));
+    }
+
+    /**
+     * Whether the album's objects can be written; only legacy albums need a
+     * round trip to check that their bucket still exists.
+     */
+    public boolean isProvisioned(Album album) throws Exception {
+        if (album.getBucket() != null) {
+            return true;
+        }
+        return storageBackend.bucketExists(bucketOf(album));
+    }
+
+    public String bucketOf(Album album) {
+        return album.getBucket() != null ? album.getBucket() : Helpers.getAlbumName(album.getId());
+    }
+
+    public String prefixOf(Album album) {
+        return album.getBucket() != null ? Helpers.getAlbumName(album.getId()) + "/" : "";
+    }
+
+    public String objectNameOf(Album album, UUID objectId) {
+        return prefixOf(album) + objectId;
+    }
+
+    /** Where a presigned upload is written before it is checked; sorts after every original. */
+    public String stagingObjectNameOf(Album album, UUID uploadId) {
+        return prefixOf(album) + "staging/" + uploadId;
+    }
+
+    public String previewObjectNameOf(Album album, UUID mediaId, PreviewSize size) {
+        return previewObjectNameOf(prefixOf(album), mediaId, size);
+    }
+
+    /** The original and all of its previews. */
+    public List<String> objectNamesOf(Album album, UUID mediaId) {
+        return objectNamesOf(prefixOf(album), mediaId);
+    }
+
+    /**
+     * Deletes the originals and previews of {@code mediaIds}, from both the
+     * legacy and the shared location while the migration may still be copying
+     * between them. Returns the ids whose original could not be removed.
+     */
+    public List<UUID> deleteMedia(Album album, Collection<UUID> mediaIds) throws Exception {
+        Set<UUID> failed = new LinkedHashSet<>(deleteMediaIn(bucketOf(album), prefixOf(album), mediaIds));
+        if (migrationEnabled && isShared()) {
+            String legacyBucket = Helpers.getAlbumName(album.getId());
+            if (album.getBucket() == null) {
+                failed.addAll(deleteMediaIn(sharedBucket, legacyBucket + "/", mediaIds));
+            } else if (storageBackend.bucketExists(legacyBucket)) {
+                failed.addAll(deleteMediaIn(legacyBucket, "", mediaIds));
+            }
+        }
+        return new ArrayList<>(failed);
+    }
+
+    /**
+     * Copies an object that was just written to the album's legacy bucket into
+     * the shared bucket if the album was switched over in the meantime, so the
+     * row committed next points at an object that exists.
+     */
+    public void followSwitch(UUID albumId, String writtenBucket, String writtenObjectName) throws Exception {
+        if (!migrationEnabled || !isShared()) {
+            return;
+        }
+        Album current = albumRepository.findById(albumId).orElse(null);
+        if (current == null || current.getBucket() == null || current.getBucket().equals(writtenBucket)) {
+            return;
+        }
+        storageBackend.copy(writtenBucket, writtenObjectName, current.getBucket(),
+                prefixOf(current) + writtenObjectName);
+    }
+
+    private List<UUID> deleteMediaIn(String bucketName, String prefix, Collection<UUID> mediaIds) throws Exception {
+        List<String> objectNames = new ArrayList<>();
+        for (UUID mediaId : mediaIds) {
+            objectNames.addAll(objectNamesOf(prefix, mediaId));
+        }
+        Set<String> notRemoved = new LinkedHashSet<>(storageBackend.deleteAll(bucketName, objectNames));
+        List<UUID> failed = new ArrayList<>();
+        for (UUID mediaId : mediaIds) {
+            if (notRemoved.contains(prefix + mediaId)) {
+                failed.add(mediaId);
+            }
+        }
+        return failed;
+    }
+
+    private static List<String> objectNamesOf(String prefix, UUID mediaId) {
+        List<String> objectNames = new ArrayList<>();
+        objectNames.add(prefix + mediaId);
+        for (PreviewSize size : PreviewSize.values()) {
+            objectNames.add(previewObjectNameOf(prefix, mediaId, size));
+        }
+        return objectNames;
+    }
+
+    private static String previewObjectNameOf(String prefix, UUID mediaId, PreviewSize size) {
+        return prefix + "previews/" + mediaId + "-" + size.getName() + ".jpg";
+    }
+}
@@ -0,0 +1,212 @@
+package com.groupshare.Services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.groupshare.Entitys.Album;
+import com.groupshare.Entitys.AlbumRepository;
+import com.groupshare.Entitys.MediaRepository;
+import com.groupshare.Entitys.PresignedUploadRepository;
+import com.groupshare.Entitys.UploadSessionRepository;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Storage.StoredObject;
+import com.groupshare.Utils.Helpers;
+import com.groupshare.Utils.Pacer;
+
+/**
+ * Moves albums from their legacy {@code album-{id}} bucket into the shared
+ * bucket without downtime, one album at a time:
+ *
+ * <ol>
+ * <li>objects are copied server-side to {@code album-{id}/{key}} while reads
+ * keep going to the legacy bucket;</li>
+ * <li>the album row is pointed at the shared bucket, so new reads and writes
+ * go there;</li>
+ * <li>after {@code grace-period}, uploads that were already writing to the
+ * legacy bucket are copied over and the legacy bucket is removed.</li>
+ * </ol>
+ *
+ * Albums with open upload sessions or presigned uploads are skipped until
+ * those close, since they pin their object location. Every step is idempotent, so a crash
+ * only costs a repeated run.
+ *
+ * <p>Only objects whose media row still exists are copied, so media deleted
+ * mid-migration is not brought back. Deletes clear both locations for as
+ * long as the migration is enabled (see {@link StorageLayout#deleteMedia}),
+ * and uploads that land in the legacy bucket after the switch are copied
+ * over before they are committed (see {@link StorageLayout#followSwitch}).
+ */
+@Service
+@ConditionalOnProperty(name = "groupshare.storage.backend", havingValue = "minio", matchIfMissing = true)
+public class StorageLayoutMigrator {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageLayoutMigrator.class);
+
+    private static final String PREVIEWS = "previews/";
+    private static final int UUID_LENGTH = 36;
+
+    @Value("${minio.layout-migration.enabled:false}")
+    private boolean enabled;
+
+    @Value("${minio.layout-migration.grace-period:PT5M}")
+    private Duration gracePeriod;
+
+    @Value("${minio.layout-migration.objects-per-second:100}")
+    private int objectsPerSecond;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private MediaRepository mediaRepository;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private PresignedUploadRepository presignedUploadRepository;
+
+    @Autowired
+    private StorageLayout storageLayout;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    // When each album was switched over; in memory only, a restart just restarts the grace period
+    private final Map<UUID, Instant> switchedAt = new ConcurrentHashMap<>();
+
+    private final Pacer pacer = new Pacer();
+
+    @Scheduled(initialDelayString = "${minio.layout-migration.interval:PT1M}",
+            fixedDelayString = "${minio.layout-migration.interval:PT1M}")
+    public synchronized void migrate() {
+        if (!enabled || !storageLayout.isShared()) {
+            return;
+        }
+
+        List<String> buckets;
+        try {
+            // One call finds every legacy bucket instead of one bucketExists per album
+            buckets = storageBackend.listBuckets();
+        } catch (Exception e) {
+            log.warn("Error listing buckets for layout migration", e);
+            return;
+        }
+
+        for (String bucketName : buckets) {
+            UUID albumId = Helpers.albumIdOf(bucketName);
+            Album album = albumId == null ? null : albumRepository.findById(albumId).orElse(null);
+            // Tombstoned albums are left to the purger, which knows both layouts
+            if (album == null || album.getDeletedAt() != null) {
+                continue;
+            }
+            try {
+                if (album.getBucket() == null) {
+                    copyAlbum(album);
+                } else {
+                    finishAlbum(album);
+                }
+            } catch (Exception e) {
+                log.warn("Error migrating album {}", albumId, e);
+            }
+        }
+    }
+
+    private void copyAlbum(Album album) throws Exception {
+        if (uploadSessionRepository.existsByAlbumId(album.getId())
+                || presignedUploadRepository.existsByAlbumId(album.getId())) {
+            return;
+        }
+
+        String sharedBucket = storageLayout.getSharedBucket();
+        copyMissing(Helpers.getAlbumName(album.getId()), sharedBucket, Helpers.getAlbumName(album.getId()) + "/");
+        if (albumRepository.assignBucket(album.getId(), sharedBucket) == 1) {
+            metadataCache.albumChanged(album.getId());
+            switchedAt.put(album.getId(), Instant.now());
+        }
+    }
+
+    private void finishAlbum(Album album) throws Exception {
+        Instant switched = switchedAt.putIfAbsent(album.getId(), Instant.now());
+        if (switched == null || switched.plus(gracePeriod).isAfter(Instant.now())) {
+            return;
+        }
+
+        String legacyBucket = Helpers.getAlbumName(album.getId());
+        copyMissing(legacyBucket, album.getBucket(), storageLayout.prefixOf(album));
+
+        List<String> batch = new ArrayList<>(Helpers.MAX_KEYS_PER_DELETE);
+        for (StoredObject object : storageBackend.list(legacyBucket, "")) {
+            pacer.pace(objectsPerSecond);
+            batch.add(object.getObjectName());
+            if (batch.size() == Helpers.MAX_KEYS_PER_DELETE) {
+                removeBatch(legacyBucket, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            removeBatch(legacyBucket, batch);
+        }
+        storageBackend.removeBucket(legacyBucket);
+        switchedAt.remove(album.getId());
+    }
+
+    private void copyMissing(String sourceBucket, String targetBucket, String prefix) throws Exception {
+        Set<String> present = new HashSet<>();
+        for (StoredObject object : storageBackend.list(targetBucket, prefix)) {
+            present.add(object.getObjectName());
+        }
+
+        for (StoredObject object : storageBackend.list(sourceBucket, "")) {
+            String key = object.getObjectName();
+            if (present.contains(prefix + key)) {
+                continue;
+            }
+            pacer.pace(objectsPerSecond);
+            // Deleted media, or an object that never got a row; the reconciler deals with the latter
+            UUID mediaId = mediaIdOf(key);
+            if (mediaId == null || !mediaRepository.existsById(mediaId)) {
+                continue;
+            }
+            storageBackend.copy(sourceBucket, key, targetBucket, prefix + key);
+        }
+    }
+
+    private void removeBatch(String bucketName, List<String> batch) throws Exception {
+        List<String> failed = storageBackend.deleteAll(bucketName, batch);
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException(failed.size() + " objects could not be removed from " + bucketName);
+        }
+    }
+
+    /** Legacy keys are {@code {mediaId}} and {@code previews/{mediaId}-{size}.jpg}. */
+    private static UUID mediaIdOf(String key) {
+        String name = key.startsWith(PREVIEWS) ? key.substring(PREVIEWS.length()) : key;
+        if (name.length() < UUID_LENGTH) {
+            return null;
+        }
+        try {
+            return UUID.fromString(name.substring(0, UUID_LENGTH));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
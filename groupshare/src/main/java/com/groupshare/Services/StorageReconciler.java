@@ -0,0 +1,394 @@
+package com.groupshare.Services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.groupshare.Entitys.Album;
+import com.groupshare.Entitys.AlbumRepository;
+import com.groupshare.Entitys.Media;
+import com.groupshare.Entitys.MediaRepository;
+import com.groupshare.Entitys.ReconcilerCheckpoint;
+import com.groupshare.Entitys.ReconcilerCheckpointRepository;
+import com.groupshare.Storage.ObjectDiskCache;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Storage.StoredObject;
+import com.groupshare.Utils.Helpers;
+import com.groupshare.Utils.Pacer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+
+/**
+ * Finds objects without a media row and media rows without an object, album
+ * by album. Both sides are walked in key order and merged, a page at a time:
+ * the object listing is already sorted by key and rows are read by id, which
+ * sorts the same way since objects are keyed by media id.
+ *
+ * <p>Anything younger than {@code grace-period} is left alone, as uploads
+ * store their object before or while their row is written. Pending rows
+ * belong to the upload outbox and are skipped too, as are previews, tombstoned
+ * albums and albums whose layout migration has not finished. Orphans are
+ * reported, and removed as well when {@code purge} is set.
+ *
+ * <p>Each pass ends with the album locations no live album points at:
+ * {@code album-{id}} buckets and {@code album-{id}/} prefixes of the shared
+ * bucket whose row is gone or already purged, as left behind by an album
+ * delete that failed part way. Their objects are orphans as well, and a
+ * bucket that only held such objects is removed with them. Albums still
+ * waiting for the {@link AlbumPurger} are left to it.
+ *
+ * <p>The position is checkpointed in the database every page, so a pass
+ * interrupted by a restart resumes where it stopped. Enable it on one node
+ * only. Totals go to the {@link Report} and the
+ * {@code groupshare.reconciler.orphans} counter; individual keys are only
+ * logged at DEBUG, as a large bucket can hold many.
+ */
+@Service
+public class StorageReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageReconciler.class);
+
+    private static final String CHECKPOINT = "storage";
+    private static final String PREVIEWS = "previews/";
+    private static final int PAGE_SIZE = 1000;
+
+    @Value("${groupshare.reconciler.enabled:false}")
+    private boolean enabled;
+
+    @Value("${groupshare.reconciler.purge:false}")
+    private boolean purge;
+
+    @Value("${groupshare.reconciler.grace-period:PT24H}")
+    private Duration gracePeriod;
+
+    @Value("${groupshare.reconciler.objects-per-second:500}")
+    private int objectsPerSecond;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private MediaRepository mediaRepository;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Autowired
+    private ReconcilerCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private StorageLayout storageLayout;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private ObjectDiskCache objectDiskCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Pacer pacer = new Pacer();
+
+    /** What a pass, or the resumed part of one, came across. */
+    @Data
+    public static class Report {
+        private long albums;
+        private long detachedLocations;
+        private long orphanedObjects;
+        private long missingObjects;
+        private long purged;
+    }
+
+    @Scheduled(fixedDelayString = "${groupshare.reconciler.interval:PT6H}")
+    public void run() {
+        if (enabled) {
+            reconcile(purge, gracePeriod);
+        }
+    }
+
+    /**
+     * Runs a pass from the checkpoint to the last album. Albums that fail are
+     * reported and skipped; the next pass visits them again.
+     */
+    public synchronized Report reconcile(boolean purge, Duration gracePeriod) {
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        Report report = new Report();
+        ReconcilerCheckpoint checkpoint = checkpointRepository.findById(CHECKPOINT)
+                .orElseGet(() -> new ReconcilerCheckpoint(CHECKPOINT));
+        if (checkpoint.getPassStartedAt() == null) {
+            checkpoint.setPassStartedAt(Instant.now());
+        }
+
+        try {
+            UUID resumeAlbumId = checkpoint.getAlbumId();
+            if (resumeAlbumId != null) {
+                Album album = albumRepository.findByIdAndDeletedAtIsNull(resumeAlbumId).orElse(null);
+                if (album != null) {
+                    reconcile(album, checkpoint.getAfterMediaId(), checkpoint, cutoff, purge, report);
+                }
+            }
+
+            List<Album> albums = resumeAlbumId == null
+                    ? albumRepository.findTop100ByDeletedAtIsNullOrderByIdAsc()
+                    : albumRepository.findTop100ByDeletedAtIsNullAndIdGreaterThanOrderByIdAsc(resumeAlbumId);
+            while (!albums.isEmpty()) {
+                for (Album album : albums) {
+                    reconcile(album, null, checkpoint, cutoff, purge, report);
+                }
+                albums = albumRepository.findTop100ByDeletedAtIsNullAndIdGreaterThanOrderByIdAsc(
+                        albums.get(albums.size() - 1).getId());
+            }
+            sweepDetached(cutoff, purge, report);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return report;
+        }
+
+        log.info("Storage reconciliation started at {} finished: {} albums, {} locations without an album, "
+                + "{} orphaned objects, {} rows without an object, {} purged", checkpoint.getPassStartedAt(),
+                report.getAlbums(), report.getDetachedLocations(), report.getOrphanedObjects(),
+                report.getMissingObjects(), report.getPurged());
+        checkpointRepository.delete(checkpoint);
+        return report;
+    }
+
+    private void reconcile(Album album, UUID afterMediaId, ReconcilerCheckpoint checkpoint, Instant cutoff,
+            boolean purge, Report report) throws InterruptedException {
+        save(checkpoint, album.getId(), afterMediaId);
+        try {
+            // Objects written to the legacy bucket during the grace period have not been copied yet
+            if (album.getBucket() != null && storageBackend.bucketExists(Helpers.getAlbumName(album.getId()))) {
+                return;
+            }
+            walk(album, afterMediaId, checkpoint, cutoff, purge, report);
+            report.albums++;
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Error reconciling album {}", album.getId(), e);
+        }
+    }
+
+    private void walk(Album album, UUID afterMediaId, ReconcilerCheckpoint checkpoint, Instant cutoff,
+            boolean purge, Report report) throws Exception {
+        String bucketName = storageLayout.bucketOf(album);
+        String prefix = storageLayout.prefixOf(album);
+        Iterator<StoredObject> objects = (afterMediaId == null
+                ? storageBackend.list(bucketName, prefix)
+                : storageBackend.list(bucketName, prefix, prefix + afterMediaId)).iterator();
+        RowCursor rows = new RowCursor(album.getId(), afterMediaId);
+
+        List<String> orphanedObjects = new ArrayList<>();
+        List<Media> missingObjects = new ArrayList<>();
+        StoredObject object = nextObject(objects, prefix);
+        Media row = rows.next();
+        int sinceCheckpoint = 0;
+        while (object != null || row != null) {
+            pacer.pace(objectsPerSecond);
+            int order = object == null ? 1
+                    : row == null ? -1
+                    : object.getObjectName().substring(prefix.length()).compareTo(row.getId().toString());
+
+            if (order < 0) {
+                if (object.getLastModified() == null || object.getLastModified().isBefore(cutoff)) {
+                    log.debug("Orphaned object {}/{}", bucketName, object.getObjectName());
+                    orphanedObjects.add(object.getObjectName());
+                }
+                object = nextObject(objects, prefix);
+                continue;
+            }
+
+            if (order > 0 && row.getStatus() == Media.Status.COMMITTED && row.getUploadedAt().isBefore(cutoff)) {
+                log.debug("Media {} has no object at {}/{}", row.getId(), bucketName,
+                        storageLayout.objectNameOf(album, row.getId()));
+                missingObjects.add(row);
+            }
+            if (order == 0) {
+                object = nextObject(objects, prefix);
+            }
+            afterMediaId = row.getId();
+            row = rows.next();
+
+            if (++sinceCheckpoint == PAGE_SIZE) {
+                settle(album, orphanedObjects, missingObjects, purge, report);
+                save(checkpoint, album.getId(), afterMediaId);
+                sinceCheckpoint = 0;
+            }
+        }
+        settle(album, orphanedObjects, missingObjects, purge, report);
+        save(checkpoint, album.getId(), afterMediaId);
+    }
+
+    /**
+     * Walks the {@code album-*} buckets and shared-bucket prefixes, not
+     * checkpointed: a pass that is cut short repeats it, which only lists again.
+     */
+    private void sweepDetached(Instant cutoff, boolean purge, Report report) throws InterruptedException {
+        try {
+            for (String bucketName : storageBackend.listBuckets()) {
+                UUID albumId = Helpers.albumIdOf(bucketName);
+                if (albumId != null && isDetached(albumId)) {
+                    sweepDetached(bucketName, "", cutoff, purge, report);
+                }
+            }
+            String sharedBucket = storageLayout.getSharedBucket();
+            if (storageBackend.bucketExists(sharedBucket)) {
+                for (String prefix : storageBackend.listPrefixes(sharedBucket)) {
+                    UUID albumId = Helpers.albumIdOf(prefix.substring(0, prefix.length() - 1));
+                    if (albumId != null && isDetached(albumId)) {
+                        sweepDetached(sharedBucket, prefix, cutoff, purge, report);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Error reconciling album locations without an album", e);
+        }
+    }
+
+    private void sweepDetached(String bucketName, String prefix, Instant cutoff, boolean purge, Report report)
+            throws Exception {
+        report.detachedLocations++;
+        log.debug("{}/{} belongs to no live album", bucketName, prefix);
+
+        List<String> orphanedObjects = new ArrayList<>();
+        boolean empty = true;
+        boolean removable = true;
+        for (StoredObject object : storageBackend.list(bucketName, prefix)) {
+            pacer.pace(objectsPerSecond);
+            empty = false;
+            if (object.getLastModified() != null && !object.getLastModified().isBefore(cutoff)) {
+                removable = false;
+                continue;
+            }
+            log.debug("Orphaned object {}/{}", bucketName, object.getObjectName());
+            orphanedObjects.add(object.getObjectName());
+            if (orphanedObjects.size() == PAGE_SIZE) {
+                removable &= settle(bucketName, orphanedObjects, purge, report);
+            }
+        }
+        removable &= settle(bucketName, orphanedObjects, purge, report);
+
+        // An empty bucket may belong to an album whose row is still being written
+        if (purge && prefix.isEmpty() && !empty && removable) {
+            storageBackend.removeBucket(bucketName);
+        }
+    }
+
+    /** Gone, or purged already; tombstones the purger has not reached yet are its business. */
+    private boolean isDetached(UUID albumId) {
+        Album album = albumRepository.findById(albumId).orElse(null);
+        return album == null || album.getPurgedAt() != null;
+    }
+
+    /** Counts, and optionally removes, the orphans found since the last checkpoint. */
+    private void settle(Album album, List<String> orphanedObjects, List<Media> missingObjects, boolean purge,
+            Report report) throws Exception {
+        settle(storageLayout.bucketOf(album), orphanedObjects, purge, report);
+        report.missingObjects += missingObjects.size();
+        count("row", purge, missingObjects.size());
+        if (purge && !missingObjects.isEmpty()) {
+            // The previews of a row without an original are of no use either
+            List<String> previews = new ArrayList<>();
+            List<UUID> ids = new ArrayList<>(missingObjects.size());
+            for (Media media : missingObjects) {
+                ids.add(media.getId());
+                previews.addAll(storageLayout.objectNamesOf(album, media.getId()));
+            }
+            storageBackend.deleteAll(storageLayout.bucketOf(album), previews);
+            mediaRepository.deleteAllByIdInBatch(ids);
+            metadataCache.mediaRemoved(ids);
+            objectDiskCache.evict(ids);
+            metadataCache.touch(album.getId());
+            report.purged += ids.size();
+        }
+        missingObjects.clear();
+    }
+
+    /** The object side of {@link #settle(Album, List, List, boolean, Report)}; false if any removal failed. */
+    private boolean settle(String bucketName, List<String> orphanedObjects, boolean purge, Report report)
+            throws Exception {
+        report.orphanedObjects += orphanedObjects.size();
+        count("object", purge, orphanedObjects.size());
+
+        boolean removed = true;
+        if (purge && !orphanedObjects.isEmpty()) {
+            List<String> failed = storageBackend.deleteAll(bucketName, orphanedObjects);
+            report.purged += orphanedObjects.size() - failed.size();
+            removed = failed.isEmpty();
+        }
+        orphanedObjects.clear();
+        return removed;
+    }
+
+    private void count(String side, boolean purged, int amount) {
+        if (amount > 0) {
+            Counter.builder("groupshare.reconciler.orphans")
+                    .description("Objects without a media row (object) and rows without an object (row)")
+                    .tag("side", side)
+                    .tag("action", purged ? "purged" : "reported")
+                    .register(meterRegistry)
+                    .increment(amount);
+        }
+    }
+
+    private void save(ReconcilerCheckpoint checkpoint, UUID albumId, UUID afterMediaId) {
+        checkpoint.setAlbumId(albumId);
+        checkpoint.setAfterMediaId(afterMediaId);
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint);
+    }
+
+    /** Previews sort after every media id, so they end the walk over originals. */
+    private static StoredObject nextObject(Iterator<StoredObject> objects, String prefix) {
+        if (!objects.hasNext()) {
+            return null;
+        }
+        StoredObject object = objects.next();
+        return object.getObjectName().startsWith(prefix + PREVIEWS) ? null : object;
+    }
+
+    /** Reads an album's rows in id order, one page at a time. */
+    private class RowCursor {
+
+        private final UUID albumId;
+        private UUID after;
+        private Iterator<Media> page;
+        private boolean last;
+
+        RowCursor(UUID albumId, UUID after) {
+            this.albumId = albumId;
+            this.after = after;
+        }
+
+        Media next() {
+            if (page == null || (!page.hasNext() && !last)) {
+                List<Media> rows = after == null
+                        ? mediaRepository.findFirstByKey(albumId, PAGE_SIZE)
+                        : mediaRepository.findByKeyAfter(albumId, after, PAGE_SIZE);
+                last = rows.size() < PAGE_SIZE;
+                page = rows.iterator();
+            }
+            if (!page.hasNext()) {
+                return null;
+            }
+            Media row = page.next();
+            after = row.getId();
+            return row;
+        }
+    }
+}
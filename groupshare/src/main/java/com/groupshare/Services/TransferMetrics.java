@@ -0,0 +1,186 @@
+package com.groupshare.Services;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.MinioException;
+
+/**
+ * Per-stage timings and byte throughput of the upload, download and listing
+ * paths. Meters:
+ *
+ * <ul>
+ * <li>{@code groupshare.stage} timer, tagged {@code operation}, {@code stage}
+ * and {@code outcome}, with a percentile histogram;</li>
+ * <li>{@code groupshare.transfer.bytes} counter and
+ * {@code groupshare.transfer.active} gauge, tagged {@code direction};</li>
+ * <li>{@code groupshare.stage.errors} counter, tagged with the stage, the
+ * exception type (the MinIO one when a cause is from MinIO) and the S3 error
+ * code.</li>
+ * </ul>
+ */
+@Service
+public class TransferMetrics {
+
+    @FunctionalInterface
+    public interface Stage<T> {
+        T call() throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface VoidStage {
+        void run() throws Exception;
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, AtomicInteger> active = new ConcurrentHashMap<>();
+
+    public <T> T time(String operation, String stage, Stage<T> body) throws Exception {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = body.call();
+            outcome = "success";
+            return result;
+        } catch (Exception e) {
+            countError(operation, stage, e);
+            throw e;
+        } finally {
+            timer(operation, stage, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void run(String operation, String stage, VoidStage body) throws Exception {
+        time(operation, stage, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * Counts the bytes read through the returned stream and keeps it in the
+     * {@code active} gauge until it is closed. For downloads the close comes
+     * from Spring once the body is written, so the {@code stream} stage covers
+     * the whole transfer to the client.
+     */
+    public InputStream track(String direction, InputStream stream) {
+        return new TrackedInputStream(stream, direction);
+    }
+
+    private Timer timer(String operation, String stage, String outcome) {
+        return Timer.builder("groupshare.stage")
+                .description("Time spent in each stage of a request")
+                .tag("operation", operation)
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private void countError(String operation, String stage, Exception e) {
+        // The multipart engine and executors wrap the MinIO exception; report the root type
+        Throwable cause = e;
+        while (!(cause instanceof MinioException) && cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        if (!(cause instanceof MinioException)) {
+            cause = e;
+        }
+        String code = cause instanceof ErrorResponseException error && error.errorResponse() != null
+                ? error.errorResponse().code()
+                : "none";
+        Counter.builder("groupshare.stage.errors")
+                .description("Failed stages by exception type")
+                .tag("operation", operation)
+                .tag("stage", stage)
+                .tag("exception", cause.getClass().getSimpleName())
+                .tag("code", code)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private AtomicInteger activeGauge(String direction) {
+        return active.computeIfAbsent(direction, key -> {
+            AtomicInteger count = new AtomicInteger();
+            Gauge.builder("groupshare.transfer.active", count, AtomicInteger::get)
+                    .description("Transfers currently streaming")
+                    .tag("direction", key)
+                    .register(meterRegistry);
+            return count;
+        });
+    }
+
+    private class TrackedInputStream extends FilterInputStream {
+
+        private final String direction;
+        private final Counter bytes;
+        private final AtomicInteger activeCount;
+        private final long start = System.nanoTime();
+        private boolean closed;
+
+        TrackedInputStream(InputStream in, String direction) {
+            super(in);
+            this.direction = direction;
+            this.bytes = Counter.builder("groupshare.transfer.bytes")
+                    .description("Bytes moved between clients and storage")
+                    .baseUnit("bytes")
+                    .tag("direction", direction)
+                    .register(meterRegistry);
+            this.activeCount = activeGauge(direction);
+            activeCount.incrementAndGet();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1) {
+                bytes.increment();
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = in.read(buffer, offset, length);
+            if (read > 0) {
+                bytes.increment(read);
+            }
+            return read;
+        }
+
+        // Keeps the wrapped stream's own transferTo, e.g. the chunked file copy of FileChannelInputStream
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            long transferred = in.transferTo(out);
+            bytes.increment(transferred);
+            return transferred;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            activeCount.decrementAndGet();
+            timer(direction, "stream", "success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.groupshare.Services;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.groupshare.Entitys.Album;
+import com.groupshare.Entitys.AlbumRepository;
+import com.groupshare.Entitys.Media;
+import com.groupshare.Entitys.MediaJdbcRepository;
+import com.groupshare.Entitys.MediaRepository;
+import com.groupshare.Entitys.UploadOutboxEntry;
+import com.groupshare.Entitys.UploadOutboxRepository;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Storage.StoredObject;
+import com.groupshare.Utils.ByteRange;
+
+/**
+ * Keeps the media row and its stored object consistent for single uploads.
+ * The row is reserved as PENDING together with an outbox entry, which lets
+ * the unique (album_id, file_name) constraint settle duplicates while the
+ * bytes are still streaming. Once the object is stored the row is committed,
+ * if the put fails it is rolled back, and in both cases the entry goes away.
+ *
+ * <p>Entries older than {@code stale-after} belong to uploads cut short by a
+ * crash. The recovery pass commits them when their object made it to storage
+ * and rolls them back otherwise.
+ */
+@Service
+public class UploadCommitter {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadCommitter.class);
+
+    // Must exceed the longest upload; younger entries may still be streaming on another node
+    @Value("${groupshare.upload-outbox.stale-after:PT1H}")
+    private Duration staleAfter;
+
+    @Autowired
+    private MediaRepository mediaRepository;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Autowired
+    private MediaJdbcRepository mediaJdbcRepository;
+
+    @Autowired
+    private UploadOutboxRepository uploadOutboxRepository;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private StorageCodec storageCodec;
+
+    @Autowired
+    private PreviewGenerator previewGenerator;
+
+    // Uploads running on this node, never recovered from under their request
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Inserts {@code pending} and its outbox entry in one transaction. A name
+     * that is already taken fails with a DuplicateKeyException.
+     */
+    @Transactional
+    public void reserve(Media pending, String bucketName, String objectName) {
+        inFlight.add(pending.getId());
+        try {
+            mediaJdbcRepository.insert(pending);
+            // Compressed objects are not the size of the upload, so recovery cannot check it
+            long objectSize = pending.getCodec() == Media.Codec.IDENTITY ? pending.getFileSize() : -1;
+            uploadOutboxRepository.save(new UploadOutboxEntry(pending.getId(), pending.getAlbumId(), bucketName,
+                    objectName, objectSize, pending.getUploadedAt()));
+        } catch (RuntimeException e) {
+            inFlight.remove(pending.getId());
+            throw e;
+        }
+    }
+
+    /**
+     * Returns false when the row is no longer pending, e.g. because its album
+     * was purged in the meantime. {@code storedSize} is null unless the object
+     * is compressed.
+     *
+     * <p>The row is written before the entry is removed, so that even outside
+     * a transaction (the recovery pass calls this directly) an entry never
+     * disappears ahead of its row.
+     */
+    @Transactional
+    public boolean commit(UUID mediaId, long fileSize, Long storedSize, String hash) {
+        inFlight.remove(mediaId);
+        boolean committed = mediaRepository.commitPending(mediaId, fileSize, storedSize, hash) == 1;
+        uploadOutboxRepository.deleteByMediaId(mediaId);
+        return committed;
+    }
+
+    @Transactional
+    public void rollback(UUID mediaId) {
+        inFlight.remove(mediaId);
+        mediaRepository.deletePending(mediaId);
+        uploadOutboxRepository.deleteByMediaId(mediaId);
+    }
+
+    @Scheduled(fixedDelayString = "${groupshare.upload-outbox.recovery-interval:PT5M}")
+    public void recover() {
+        for (UploadOutboxEntry entry : uploadOutboxRepository.findByCreatedAtBefore(Instant.now().minus(staleAfter))) {
+            if (inFlight.contains(entry.getMediaId())) {
+                continue;
+            }
+            try {
+                recover(entry);
+            } catch (Exception e) {
+                // Left for the next pass
+                log.warn("Error recovering upload {}", entry.getMediaId(), e);
+            }
+        }
+    }
+
+    private void recover(UploadOutboxEntry entry) throws Exception {
+        // Puts are atomic: the object is either complete or absent
+        StoredObject stored = storageBackend.stat(entry.getBucket(), entry.getObjectName());
+        if (stored == null) {
+            rollback(entry.getMediaId());
+            return;
+        }
+        if (entry.getFileSize() >= 0 && stored.getSize() != entry.getFileSize()) {
+            storageBackend.delete(entry.getBucket(), entry.getObjectName());
+            rollback(entry.getMediaId());
+            return;
+        }
+
+        // The digest computed during the upload died with it; size and hash are of the original bytes
+        Media pending = mediaRepository.findById(entry.getMediaId()).orElse(null);
+        boolean compressed = pending != null && pending.getCodec() == Media.Codec.GZIP;
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        long fileSize;
+        try (InputStream object = storageBackend.get(entry.getBucket(), entry.getObjectName(),
+                ByteRange.full(stored.getSize()));
+                InputStream stream = new DigestInputStream(compressed ? storageCodec.decode(pending, object) : object,
+                        digest)) {
+            fileSize = stream.transferTo(OutputStream.nullOutputStream());
+        }
+        if (!commit(entry.getMediaId(), fileSize, compressed ? stored.getSize() : null,
+                HexFormat.of().formatHex(digest.digest()))) {
+            // Either committed before the entry could be removed, or the row is gone and the object orphaned
+            if (mediaRepository.findCommittedById(entry.getMediaId()).isEmpty()) {
+                storageBackend.delete(entry.getBucket(), entry.getObjectName());
+            }
+            return;
+        }
+
+        Album album = albumRepository.findByIdAndDeletedAtIsNull(entry.getAlbumId()).orElse(null);
+        Media media = mediaRepository.findCommittedById(entry.getMediaId()).orElse(null);
+        metadataCache.touch(entry.getAlbumId());
+        if (album != null && media != null) {
+            previewGenerator.schedule(album, media);
+        }
+    }
+}
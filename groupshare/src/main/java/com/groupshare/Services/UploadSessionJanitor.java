@@ -0,0 +1,62 @@
+package com.groupshare.Services;
+
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.groupshare.Entitys.PresignedUpload;
+import com.groupshare.Entitys.PresignedUploadRepository;
+import com.groupshare.Entitys.UploadSession;
+import com.groupshare.Entitys.UploadSessionRepository;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Utils.MultipartMinioClient;
+
+/**
+ * Aborts expired upload sessions so MinIO releases the parts they hold, and
+ * removes the staging objects of expired presigned uploads, finalized or not.
+ */
+@Service
+public class UploadSessionJanitor {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSessionJanitor.class);
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private PresignedUploadRepository presignedUploadRepository;
+
+    @Autowired
+    private MultipartMinioClient multipartMinioClient;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Scheduled(fixedDelayString = "${groupshare.upload-sessions.cleanup-interval:PT15M}")
+    public void purgeExpiredSessions() {
+        for (UploadSession session : uploadSessionRepository.findByExpiresAtBefore(Instant.now())) {
+            try {
+                multipartMinioClient.abortMultipartUpload(session.getBucket(), session.getObjectName(),
+                        session.getUploadId());
+            } catch (Exception e) {
+                // Already aborted, or the bucket is gone; the row is stale either way
+                log.warn("Error aborting upload session {}", session.getId(), e);
+            }
+            uploadSessionRepository.delete(session);
+        }
+
+        // Whatever a client put before the URL expired was never finalized, or was put again afterwards
+        for (PresignedUpload upload : presignedUploadRepository.findByExpiresAtBefore(Instant.now())) {
+            try {
+                storageBackend.delete(upload.getBucket(), upload.getStagingObjectName());
+            } catch (Exception e) {
+                log.warn("Error removing presigned upload {}", upload.getId(), e);
+            }
+            presignedUploadRepository.delete(upload);
+        }
+    }
+}
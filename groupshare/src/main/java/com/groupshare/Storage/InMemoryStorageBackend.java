@@ -0,0 +1,125 @@
+package com.groupshare.Storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.groupshare.Entitys.Media;
+import com.groupshare.Utils.ByteRange;
+
+/**
+ * Keeps objects on the heap. Meant for benchmarks that should measure the
+ * application without any storage I/O; contents are lost on restart.
+ */
+@Service
+@ConditionalOnProperty(name = "groupshare.storage.backend", havingValue = "memory")
+public class InMemoryStorageBackend implements StorageBackend {
+
+    private final Map<String, NavigableMap<String, byte[]>> buckets = new ConcurrentHashMap<>();
+
+    @Override
+    public void createBucket(String bucketName) {
+        buckets.computeIfAbsent(bucketName, name -> new ConcurrentSkipListMap<>());
+    }
+
+    @Override
+    public boolean bucketExists(String bucketName) {
+        return buckets.containsKey(bucketName);
+    }
+
+    @Override
+    public void removeBucket(String bucketName) {
+        NavigableMap<String, byte[]> bucket = buckets.get(bucketName);
+        if (bucket != null && !bucket.isEmpty()) {
+            throw new IllegalStateException("Bucket " + bucketName + " is not empty");
+        }
+        buckets.remove(bucketName);
+    }
+
+    @Override
+    public List<String> listBuckets() {
+        return buckets.keySet().stream().sorted().toList();
+    }
+
+    @Override
+    public void put(String bucketName, String objectName, Media media, InputStream stream) throws Exception {
+        byte[] data = stream.readAllBytes();
+        if (media.getFileSize() >= 0 && data.length != media.getFileSize()) {
+            throw new IllegalStateException("Expected " + media.getFileSize() + " bytes but read " + data.length);
+        }
+        bucket(bucketName).put(objectName, data);
+    }
+
+    @Override
+    public InputStream get(String bucketName, String objectName, ByteRange range) throws Exception {
+        byte[] data = bucket(bucketName).get(objectName);
+        if (data == null) {
+            throw new FileNotFoundException(bucketName + "/" + objectName);
+        }
+        if (!range.isPartial()) {
+            return new ByteArrayInputStream(data);
+        }
+        return new ByteArrayInputStream(data, (int) range.getOffset(), (int) range.getLength());
+    }
+
+    @Override
+    public void copy(String sourceBucket, String sourceObject, String targetBucket, String targetObject)
+            throws Exception {
+        byte[] data = bucket(sourceBucket).get(sourceObject);
+        if (data == null) {
+            throw new FileNotFoundException(sourceBucket + "/" + sourceObject);
+        }
+        // Stored arrays are never modified, so the copy can share it
+        bucket(targetBucket).put(targetObject, data);
+    }
+
+    @Override
+    public void delete(String bucketName, String objectName) {
+        bucket(bucketName).remove(objectName);
+    }
+
+    @Override
+    public List<String> deleteAll(String bucketName, Collection<String> objectNames) {
+        NavigableMap<String, byte[]> bucket = bucket(bucketName);
+        for (String objectName : objectNames) {
+            bucket.remove(objectName);
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public Iterable<StoredObject> list(String bucketName, String prefix) {
+        List<StoredObject> objects = new ArrayList<>();
+        for (Map.Entry<String, byte[]> entry : bucket(bucketName).tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            objects.add(new StoredObject(entry.getKey(), entry.getValue().length, null, null));
+        }
+        return objects;
+    }
+
+    @Override
+    public StoredObject stat(String bucketName, String objectName) {
+        byte[] data = bucket(bucketName).get(objectName);
+        return data == null ? null : new StoredObject(objectName, data.length, null, null);
+    }
+
+    private NavigableMap<String, byte[]> bucket(String bucketName) {
+        NavigableMap<String, byte[]> bucket = buckets.get(bucketName);
+        if (bucket == null) {
+            throw new IllegalStateException("Bucket " + bucketName + " does not exist");
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,226 @@
+package com.groupshare.Storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.groupshare.Entitys.Media;
+import com.groupshare.Utils.ByteRange;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Stores each bucket as a directory under {@code groupshare.storage.local.root}
+ * and each object as a file, for installations without MinIO. Writes go
+ * through {@link FileChannel#transferFrom} into a temporary file that is moved
+ * into place atomically; reads hand out a {@link FileChannelInputStream}.
+ * Upload and response bodies are streams, so both directions are buffered
+ * copies in large chunks rather than kernel copies.
+ */
+@Service
+@ConditionalOnProperty(name = "groupshare.storage.backend", havingValue = "local")
+public class LocalFilesystemStorageBackend implements StorageBackend {
+
+    // Bucket names cannot start with a dot, so this never collides with one.
+    private static final String TEMP_DIR = ".tmp";
+
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    @Value("${groupshare.storage.local.root:./data}")
+    private Path root;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = root.toAbsolutePath().normalize();
+        Files.createDirectories(root.resolve(TEMP_DIR));
+    }
+
+    @Override
+    public void createBucket(String bucketName) throws IOException {
+        Files.createDirectories(bucketPath(bucketName));
+    }
+
+    @Override
+    public boolean bucketExists(String bucketName) {
+        return Files.isDirectory(bucketPath(bucketName));
+    }
+
+    @Override
+    public void removeBucket(String bucketName) throws IOException {
+        Path bucket = bucketPath(bucketName);
+        if (!Files.exists(bucket)) {
+            return;
+        }
+        // Like S3, a bucket that still holds objects is not removed; only the
+        // directories left behind by prefixed keys are cleaned up
+        try (Stream<Path> paths = Files.walk(bucket)) {
+            List<Path> all = paths.sorted(Comparator.reverseOrder()).toList();
+            for (Path path : all) {
+                if (Files.isRegularFile(path)) {
+                    throw new IOException("Bucket " + bucketName + " is not empty");
+                }
+            }
+            for (Path path : all) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Override
+    public List<String> listBuckets() throws IOException {
+        try (Stream<Path> paths = Files.list(root)) {
+            return paths.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> !name.startsWith("."))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    @Override
+    public void put(String bucketName, String objectName, Media media, InputStream stream) throws IOException {
+        Path target = objectPath(bucketName, objectName);
+        if (!Files.isDirectory(bucketPath(bucketName))) {
+            throw new IOException("Bucket " + bucketName + " does not exist");
+        }
+        Files.createDirectories(target.getParent());
+
+        Path temp = root.resolve(TEMP_DIR).resolve(UUID.randomUUID().toString());
+        try {
+            long written = 0;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                    ReadableByteChannel in = Channels.newChannel(stream)) {
+                long transferred;
+                while ((transferred = out.transferFrom(in, written, TRANSFER_CHUNK)) > 0) {
+                    written += transferred;
+                }
+            }
+            if (media.getFileSize() >= 0 && written != media.getFileSize()) {
+                throw new IOException("Expected " + media.getFileSize() + " bytes but read " + written);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream get(String bucketName, String objectName, ByteRange range) throws IOException {
+        FileChannel channel = FileChannel.open(objectPath(bucketName, objectName), StandardOpenOption.READ);
+        if (!range.isPartial()) {
+            return new FileChannelInputStream(channel, 0, channel.size());
+        }
+        return new FileChannelInputStream(channel, range.getOffset(), range.getLength());
+    }
+
+    @Override
+    public void copy(String sourceBucket, String sourceObject, String targetBucket, String targetObject)
+            throws IOException {
+        Path target = objectPath(targetBucket, targetObject);
+        if (!Files.isDirectory(bucketPath(targetBucket))) {
+            throw new IOException("Bucket " + targetBucket + " does not exist");
+        }
+        Files.createDirectories(target.getParent());
+
+        Path temp = root.resolve(TEMP_DIR).resolve(UUID.randomUUID().toString());
+        try {
+            Files.copy(objectPath(sourceBucket, sourceObject), temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public void delete(String bucketName, String objectName) throws IOException {
+        Files.deleteIfExists(objectPath(bucketName, objectName));
+    }
+
+    @Override
+    public List<String> deleteAll(String bucketName, Collection<String> objectNames) {
+        List<String> failed = new ArrayList<>();
+        for (String objectName : objectNames) {
+            try {
+                delete(bucketName, objectName);
+            } catch (IOException e) {
+                failed.add(objectName);
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public Iterable<StoredObject> list(String bucketName, String prefix) throws IOException {
+        Path bucket = bucketPath(bucketName);
+        List<StoredObject> objects = new ArrayList<>();
+        if (!Files.isDirectory(bucket)) {
+            return objects;
+        }
+        try (Stream<Path> paths = Files.walk(bucket)) {
+            for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                String objectName = bucket.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+                if (objectName.startsWith(prefix)) {
+                    objects.add(new StoredObject(objectName, Files.size(path), null,
+                            Files.getLastModifiedTime(path).toInstant()));
+                }
+            }
+        }
+        objects.sort(Comparator.comparing(StoredObject::getObjectName));
+        return objects;
+    }
+
+    @Override
+    public List<String> listPrefixes(String bucketName) throws IOException {
+        Path bucket = bucketPath(bucketName);
+        if (!Files.isDirectory(bucket)) {
+            return new ArrayList<>();
+        }
+        // Prefixes are the directories that keys with a slash were written into
+        try (Stream<Path> paths = Files.list(bucket)) {
+            return paths.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString() + "/")
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    @Override
+    public StoredObject stat(String bucketName, String objectName) throws IOException {
+        Path path = objectPath(bucketName, objectName);
+        return Files.isRegularFile(path)
+                ? new StoredObject(objectName, Files.size(path), null, Files.getLastModifiedTime(path).toInstant())
+                : null;
+    }
+
+    private Path bucketPath(String bucketName) {
+        return resolveInside(root, bucketName);
+    }
+
+    private Path objectPath(String bucketName, String objectName) {
+        return resolveInside(bucketPath(bucketName), objectName);
+    }
+
+    private static Path resolveInside(Path parent, String name) {
+        Path path = parent.resolve(name).normalize();
+        if (name.isEmpty() || name.startsWith(".") || !path.startsWith(parent) || path.equals(parent)) {
+            throw new IllegalArgumentException("Invalid storage name: " + name);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,262 @@
+package com.groupshare.Storage;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.groupshare.Entitys.Media;
+import com.groupshare.Services.MultipartUploadEngine;
+import com.groupshare.Utils.ByteRange;
+import com.groupshare.Utils.Helpers;
+
+import io.minio.BucketExistsArgs;
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.GetObjectArgs;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveBucketArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.http.Method;
+import io.minio.messages.Bucket;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+
+@Service
+@ConditionalOnProperty(name = "groupshare.storage.backend", havingValue = "minio", matchIfMissing = true)
+public class MinioStorageBackend implements StorageBackend {
+
+    private static final long MAX_COPY_OBJECT_SIZE = 5L * 1024 * 1024 * 1024;
+
+    @Autowired
+    private MinioClient minioClient;
+
+    @Autowired
+    @Qualifier("presignMinioClient")
+    private MinioClient presignMinioClient;
+
+    @Autowired
+    private MultipartUploadEngine uploadEngine;
+
+    @Override
+    public void createBucket(String bucketName) throws Exception {
+        if (!bucketExists(bucketName)) {
+            minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+        }
+    }
+
+    @Override
+    public boolean bucketExists(String bucketName) throws Exception {
+        return minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build());
+    }
+
+    @Override
+    public void removeBucket(String bucketName) throws Exception {
+        minioClient.removeBucket(RemoveBucketArgs.builder().bucket(bucketName).build());
+    }
+
+    @Override
+    public List<String> listBuckets() throws Exception {
+        return minioClient.listBuckets().stream().map(Bucket::name).sorted().toList();
+    }
+
+    @Override
+    public void put(String bucketName, String objectName, Media media, InputStream stream) throws Exception {
+        uploadEngine.upload(bucketName, objectName, media, stream);
+    }
+
+    @Override
+    public InputStream get(String bucketName, String objectName, ByteRange range) throws Exception {
+        GetObjectArgs.Builder args = GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName);
+        if (range.isPartial()) {
+            args.offset(range.getOffset()).length(range.getLength());
+        }
+        return minioClient.getObject(args.build());
+    }
+
+    /**
+     * Server-side copy. Single-request CopyObject is limited to 5 GiB, so
+     * larger objects are composed from server-side part copies instead.
+     */
+    @Override
+    public void copy(String sourceBucket, String sourceObject, String targetBucket, String targetObject)
+            throws Exception {
+        StatObjectResponse stat = minioClient.statObject(
+                StatObjectArgs.builder().bucket(sourceBucket).object(sourceObject).build());
+        if (stat.size() <= MAX_COPY_OBJECT_SIZE) {
+            // Metadata is copied along with the object by default
+            minioClient.copyObject(CopyObjectArgs.builder()
+                    .bucket(targetBucket).object(targetObject)
+                    .source(CopySource.builder().bucket(sourceBucket).object(sourceObject).build())
+                    .build());
+            return;
+        }
+
+        // Compose does not carry metadata over
+        minioClient.composeObject(ComposeObjectArgs.builder()
+                .bucket(targetBucket).object(targetObject)
+                .sources(List.of(ComposeSource.builder().bucket(sourceBucket).object(sourceObject).build()))
+                .headers(Map.of("Content-Type", stat.contentType()))
+                .userMetadata(stat.userMetadata())
+                .build());
+    }
+
+    @Override
+    public void delete(String bucketName, String objectName) throws Exception {
+        minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectName).build());
+    }
+
+    /**
+     * Sends multi-object DELETE requests of at most 1000 keys each.
+     */
+    @Override
+    public List<String> deleteAll(String bucketName, Collection<String> objectNames) throws Exception {
+        List<String> failed = new ArrayList<>();
+        List<DeleteObject> batch = new ArrayList<>(Helpers.MAX_KEYS_PER_DELETE);
+        for (String objectName : objectNames) {
+            batch.add(new DeleteObject(objectName));
+            if (batch.size() == Helpers.MAX_KEYS_PER_DELETE) {
+                failed.addAll(deleteBatch(bucketName, batch));
+                batch = new ArrayList<>(Helpers.MAX_KEYS_PER_DELETE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            failed.addAll(deleteBatch(bucketName, batch));
+        }
+        return failed;
+    }
+
+    /**
+     * Pages through the listing lazily, so albums of any size can be walked
+     * without holding every key in memory.
+     */
+    @Override
+    public Iterable<StoredObject> list(String bucketName, String prefix) {
+        return list(bucketName, prefix, null);
+    }
+
+    @Override
+    public Iterable<StoredObject> list(String bucketName, String prefix, String startAfter) {
+        Iterable<Result<Item>> items = minioClient.listObjects(ListObjectsArgs.builder()
+                .bucket(bucketName).prefix(prefix).startAfter(startAfter).recursive(true).build());
+        return () -> {
+            Iterator<Result<Item>> iterator = items.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public StoredObject next() {
+                    try {
+                        Item item = iterator.next().get();
+                        return new StoredObject(item.objectName(), item.size(), unquote(item.etag()),
+                                item.lastModified() == null ? null : item.lastModified().toInstant());
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Error listing " + bucketName, e);
+                    }
+                }
+            };
+        };
+    }
+
+    /** A delimited listing, which returns each prefix once instead of the keys below it. */
+    @Override
+    public List<String> listPrefixes(String bucketName) throws Exception {
+        List<String> prefixes = new ArrayList<>();
+        for (Result<Item> result : minioClient.listObjects(ListObjectsArgs.builder()
+                .bucket(bucketName).recursive(false).build())) {
+            Item item = result.get();
+            if (item.isDir()) {
+                prefixes.add(item.objectName());
+            }
+        }
+        return prefixes;
+    }
+
+    @Override
+    public StoredObject stat(String bucketName, String objectName) throws Exception {
+        try {
+            StatObjectResponse stat = minioClient.statObject(
+                    StatObjectArgs.builder().bucket(bucketName).object(objectName).build());
+            return new StoredObject(objectName, stat.size(), unquote(stat.etag()),
+                    stat.lastModified() == null ? null : stat.lastModified().toInstant());
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean supportsMultipartUploads() {
+        return true;
+    }
+
+    @Override
+    public String presignPut(String bucketName, String objectName, Duration expiry) throws Exception {
+        return presignMinioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                .method(Method.PUT)
+                .bucket(bucketName)
+                .object(objectName)
+                .expiry((int) expiry.toSeconds())
+                .build());
+    }
+
+    @Override
+    public String presignGet(String bucketName, String objectName, Duration expiry, String contentType,
+            String contentDisposition, String contentEncoding) throws Exception {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("response-content-type", contentType);
+        headers.put("response-content-disposition", contentDisposition);
+        if (contentEncoding != null) {
+            headers.put("response-content-encoding", contentEncoding);
+        }
+        return presignMinioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                .method(Method.GET)
+                .bucket(bucketName)
+                .object(objectName)
+                .expiry((int) expiry.toSeconds())
+                .extraQueryParams(headers)
+                .build());
+    }
+
+    private static String unquote(String etag) {
+        return etag == null ? null : etag.replace("\"", "");
+    }
+
+    private List<String> deleteBatch(String bucketName, List<DeleteObject> batch) throws Exception {
+        // The result iterable is lazy: the request is only sent while it is consumed
+        List<String> failed = new ArrayList<>();
+        Iterable<Result<DeleteError>> errors = minioClient.removeObjects(
+                RemoveObjectsArgs.builder().bucket(bucketName).objects(batch).build());
+        for (Result<DeleteError> error : errors) {
+            failed.add(error.get().objectName());
+        }
+        return failed;
+    }
+}
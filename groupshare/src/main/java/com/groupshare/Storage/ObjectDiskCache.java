@@ -0,0 +1,208 @@
+package com.groupshare.Storage;
+
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.groupshare.Entitys.Media;
+import com.groupshare.Utils.ByteRange;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Keeps copies of recently downloaded originals on local disk, so a file
+ * that many people fetch at once costs one read from storage. Downloads that
+ * miss at the same time share a single fetch; every request, ranged or not,
+ * is then served from the local file through a {@link FileChannelInputStream}.
+ *
+ * <p>Entries are keyed by media id, which is never reused for other bytes,
+ * and are evicted by total size. Every fetch writes a file of its own, so the
+ * asynchronous removal of an evicted entry cannot delete the file of a newer
+ * entry for the same media. Deleting media drops its entry here. Other
+ * nodes never serve theirs again because the media row is checked first, and
+ * their copy is evicted in time. Leftovers from an earlier run are removed
+ * on startup; only files named like cache entries are touched, in case the
+ * directory is shared with anything else.
+ */
+@Service
+public class ObjectDiskCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ObjectDiskCache.class);
+
+    private static final int UUID_LENGTH = 36;
+    private static final String PART_SUFFIX = ".part";
+
+    @Value("${groupshare.object-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${groupshare.object-cache.directory:./cache/objects}")
+    private Path directory;
+
+    @Value("${groupshare.object-cache.max-size:10GB}")
+    private DataSize maxSize;
+
+    // Larger objects are streamed straight from storage instead of making the first client wait for a full copy
+    @Value("${groupshare.object-cache.max-object-size:512MB}")
+    private DataSize maxObjectSize;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ExecutorService fetches = Executors.newVirtualThreadPerTaskExecutor();
+
+    private AsyncCache<UUID, CachedObject> objects;
+
+    @RequiredArgsConstructor
+    @Data
+    private static class CachedObject {
+        private final Path path;
+        private final long size;
+    }
+
+    @PostConstruct
+    public void init() throws Exception {
+        if (!enabled) {
+            return;
+        }
+        directory = directory.toAbsolutePath().normalize();
+        Files.createDirectories(directory);
+        try (Stream<Path> stale = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) stale::iterator) {
+                if (Files.isRegularFile(path) && isCacheFile(path.getFileName().toString())) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+
+        objects = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .executor(fetches)
+                // Weighed in KiB so objects up to 2 TiB fit the int weight
+                .maximumWeight(maxSize.toKilobytes())
+                .<UUID, CachedObject>weigher((id, object) -> (int) Math.max(object.getSize() / 1024, 1))
+                .<UUID, CachedObject>removalListener((id, object, cause) -> {
+                    if (object != null) {
+                        try {
+                            // Readers that already opened the file keep reading it
+                            Files.deleteIfExists(object.getPath());
+                        } catch (Exception e) {
+                            log.warn("Error removing cached object {}", id, e);
+                        }
+                    }
+                })
+                .<UUID, CachedObject>buildAsync(), "objects");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetches.shutdownNow();
+    }
+
+    /**
+     * Opens {@code range} of the media's stored object, from the local copy
+     * when caching applies to it and from storage otherwise. Compressed
+     * objects are kept as stored.
+     */
+    public InputStream get(String bucketName, String objectName, Media media, ByteRange range) throws Exception {
+        if (!enabled || media.storedBytes() < 0 || media.storedBytes() > maxObjectSize.toBytes()) {
+            return storageBackend.get(bucketName, objectName, range);
+        }
+
+        CachedObject object;
+        try {
+            object = objects.get(media.getId(), (id, executor) -> CompletableFuture.supplyAsync(
+                    () -> fetch(bucketName, objectName, media), executor)).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof Exception exception ? exception : e;
+        }
+
+        try {
+            FileChannel channel = FileChannel.open(object.getPath(), StandardOpenOption.READ);
+            return new FileChannelInputStream(channel, range.getOffset(), range.getLength());
+        } catch (NoSuchFileException e) {
+            // Evicted between the lookup and the open
+            return storageBackend.get(bucketName, objectName, range);
+        }
+    }
+
+    public void evict(Collection<UUID> mediaIds) {
+        if (enabled) {
+            objects.synchronous().invalidateAll(mediaIds);
+        }
+    }
+
+    /**
+     * Entries are named {@code <media id>-<fetch id>}, downloads in progress
+     * the same with {@code .part} appended.
+     */
+    private static boolean isCacheFile(String fileName) {
+        String name = fileName.endsWith(PART_SUFFIX)
+                ? fileName.substring(0, fileName.length() - PART_SUFFIX.length())
+                : fileName;
+        if (name.length() != 2 * UUID_LENGTH + 1 || name.charAt(UUID_LENGTH) != '-') {
+            return false;
+        }
+        try {
+            UUID.fromString(name.substring(0, UUID_LENGTH));
+            UUID.fromString(name.substring(UUID_LENGTH + 1));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private CachedObject fetch(String bucketName, String objectName, Media media) {
+        Path target = directory.resolve(media.getId() + "-" + UUID.randomUUID());
+        try {
+            Path temp = Files.createFile(target.resolveSibling(target.getFileName() + PART_SUFFIX));
+            try {
+                try (InputStream stream = storageBackend.get(bucketName, objectName,
+                        ByteRange.full(media.storedBytes()))) {
+                    Files.copy(stream, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                long size = Files.size(temp);
+                if (size != media.storedBytes()) {
+                    throw new IllegalStateException("Expected " + media.storedBytes() + " bytes of " + objectName
+                            + " but read " + size);
+                }
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                return new CachedObject(target, size);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
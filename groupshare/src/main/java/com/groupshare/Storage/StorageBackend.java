@@ -0,0 +1,116 @@
+package com.groupshare.Storage;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.groupshare.Entitys.Media;
+import com.groupshare.Utils.ByteRange;
+
+/**
+ * Where object bytes live. Buckets and keys follow S3 naming; backends that
+ * have no such concept map them onto their own namespace. The implementation
+ * is chosen with {@code groupshare.storage.backend}.
+ */
+public interface StorageBackend {
+
+    /** Creates the bucket if it does not exist yet. */
+    void createBucket(String bucketName) throws Exception;
+
+    boolean bucketExists(String bucketName) throws Exception;
+
+    /** Removes an empty bucket. */
+    void removeBucket(String bucketName) throws Exception;
+
+    /** Names of every bucket, in name order. */
+    List<String> listBuckets() throws Exception;
+
+    /**
+     * Stores {@code stream} under {@code objectName}. A negative
+     * {@code Media.fileSize} means the length is unknown.
+     */
+    void put(String bucketName, String objectName, Media media, InputStream stream) throws Exception;
+
+    /** Opens the slice of the object described by {@code range}. */
+    InputStream get(String bucketName, String objectName, ByteRange range) throws Exception;
+
+    /**
+     * Copies an object, metadata included, without its bytes passing through
+     * the application where the backend allows it.
+     */
+    void copy(String sourceBucket, String sourceObject, String targetBucket, String targetObject) throws Exception;
+
+    void delete(String bucketName, String objectName) throws Exception;
+
+    /** Deletes the given keys and returns the ones that could not be removed. */
+    List<String> deleteAll(String bucketName, Collection<String> objectNames) throws Exception;
+
+    /** Lists the objects under {@code prefix} in key order. */
+    Iterable<StoredObject> list(String bucketName, String prefix) throws Exception;
+
+    /**
+     * Lists the objects under {@code prefix} whose key sorts after
+     * {@code startAfter}, so a walk can resume where it stopped.
+     */
+    default Iterable<StoredObject> list(String bucketName, String prefix, String startAfter) throws Exception {
+        List<StoredObject> objects = new ArrayList<>();
+        for (StoredObject object : list(bucketName, prefix)) {
+            if (object.getObjectName().compareTo(startAfter) > 0) {
+                objects.add(object);
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * The first-level prefixes of a bucket, such as {@code album-{id}/}, in key
+     * order. Backends that can list by delimiter do so without reading the keys
+     * below them.
+     */
+    default List<String> listPrefixes(String bucketName) throws Exception {
+        List<String> prefixes = new ArrayList<>();
+        for (StoredObject object : list(bucketName, "")) {
+            int slash = object.getObjectName().indexOf('/');
+            String prefix = slash < 0 ? null : object.getObjectName().substring(0, slash + 1);
+            if (prefix != null && (prefixes.isEmpty() || !prefixes.get(prefixes.size() - 1).equals(prefix))) {
+                prefixes.add(prefix);
+            }
+        }
+        return prefixes;
+    }
+
+    /** Returns {@code null} when the object does not exist. */
+    StoredObject stat(String bucketName, String objectName) throws Exception;
+
+    /**
+     * Whether the backend offers S3 multipart uploads, which resumable upload
+     * sessions are built on.
+     */
+    default boolean supportsMultipartUploads() {
+        return false;
+    }
+
+    /**
+     * A URL that lets a client PUT the object straight into storage until
+     * {@code expiry} has passed.
+     *
+     * @throws UnsupportedOperationException when the backend is not reachable by clients
+     */
+    default String presignPut(String bucketName, String objectName, Duration expiry) throws Exception {
+        throw new UnsupportedOperationException("Presigned URLs are not supported by this storage backend");
+    }
+
+    /**
+     * A URL that lets a client GET the object straight from storage; the
+     * response headers are applied by the storage server. A null
+     * {@code contentEncoding} leaves the header out.
+     *
+     * @throws UnsupportedOperationException when the backend is not reachable by clients
+     */
+    default String presignGet(String bucketName, String objectName, Duration expiry, String contentType,
+            String contentDisposition, String contentEncoding) throws Exception {
+        throw new UnsupportedOperationException("Presigned URLs are not supported by this storage backend");
+    }
+}
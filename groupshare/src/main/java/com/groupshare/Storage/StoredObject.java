@@ -0,0 +1,17 @@
+package com.groupshare.Storage;
+
+import java.time.Instant;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Data
+public class StoredObject {
+    private final String objectName;
+    private final long size;
+    // Backend-specific content tag without quotes, e.g. the MD5 of a single-part S3 upload; may be null
+    private final String etag;
+    // When the object was last written; null when the backend does not track it
+    private final Instant lastModified;
+}
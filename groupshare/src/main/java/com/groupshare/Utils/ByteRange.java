@@ -0,0 +1,86 @@
+package com.groupshare.Utils;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.springframework.http.HttpRange;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The slice of an object a download should return, resolved from the
+ * {@code Range} and {@code If-Range} request headers.
+ */
+@RequiredArgsConstructor
+@Data
+public class ByteRange {
+
+    private final long offset;
+    private final long length;
+    private final long totalLength;
+    private final boolean partial;
+
+    public static ByteRange full(long totalLength) {
+        return new ByteRange(0, totalLength, totalLength, false);
+    }
+
+    /**
+     * Only a single byte range is honoured; multi-range requests are answered
+     * with the full object, which RFC 9110 allows. So are headers that do not
+     * parse, which RFC 9110 requires to be ignored.
+     *
+     * @throws IllegalArgumentException when a valid range cannot be satisfied
+     */
+    public static ByteRange resolve(String rangeHeader, String ifRangeHeader, long totalLength,
+            Instant lastModified, String etag) {
+        if (rangeHeader == null || rangeHeader.isBlank() || !ifRangeMatches(ifRangeHeader, lastModified, etag)) {
+            return full(totalLength);
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return full(totalLength);
+        }
+        if (ranges.size() != 1) {
+            return full(totalLength);
+        }
+
+        HttpRange range = ranges.get(0);
+        long start = range.getRangeStart(totalLength);
+        long end = range.getRangeEnd(totalLength);
+        if (totalLength == 0 || start > end) {
+            throw new IllegalArgumentException("Unsatisfiable range: " + rangeHeader);
+        }
+        return new ByteRange(start, end - start + 1, totalLength, true);
+    }
+
+    public String contentRange() {
+        return "bytes " + offset + "-" + (offset + length - 1) + "/" + totalLength;
+    }
+
+    private static boolean ifRangeMatches(String ifRangeHeader, Instant lastModified, String etag) {
+        if (ifRangeHeader == null || ifRangeHeader.isBlank()) {
+            return true;
+        }
+        // If-Range requires the strong comparison, so weak tags never match
+        if (ifRangeHeader.startsWith("W/")) {
+            return false;
+        }
+        if (ifRangeHeader.startsWith("\"")) {
+            return ifRangeHeader.equals(etag);
+        }
+        try {
+            Instant validator = ZonedDateTime.parse(ifRangeHeader, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return validator.equals(lastModified.truncatedTo(ChronoUnit.SECONDS));
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
@@ -31,4 +31,17 @@ public class Constants {
             "application/zip", "application/x-7z-compressed", "application/x-rar-compressed",
             "application/x-tar", "application/gzip", "application/x-bzip2");
 
+    // Types that are not compressed internally, so deflating them pays off.
+    // Everything else (images, video, audio, archives, OOXML/ODF/EPUB) is already compressed.
+    // PDF and WAV are left out as well: viewers and players read them by range, and a
+    // range of a compressed object has to be decoded from its start.
+    public static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            "text/plain", "text/html", "text/csv", "text/rtf", "image/svg+xml", "image/bmp", "image/x-icon",
+            "application/msword", "application/vnd.ms-excel", "application/vnd.ms-powerpoint",
+            "application/x-tar");
+
+    // Image types the JDK's ImageIO can decode; the others are served without previews.
+    public static final Set<String> PREVIEW_TYPES = Set.of(
+            "image/jpeg", "image/png", "image/gif", "image/bmp", "image/tiff");
+
 }
@@ -0,0 +1,88 @@
+package com.groupshare.Utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+/**
+ * Gzip-compresses {@code source} as it is read, the pull counterpart of
+ * {@link java.util.zip.GZIPOutputStream}, so compressed bytes can be handed
+ * to anything that consumes an InputStream. Only the deflater's window and
+ * one buffer are held in memory.
+ */
+public class GzipEncodingInputStream extends InputStream {
+
+    // Magic, deflate, no flags, no mtime, no extra flags, unknown OS
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CheckedInputStream source;
+    private final Deflater deflater;
+    private final DeflaterInputStream body;
+    private InputStream current;
+    private boolean trailerQueued;
+    private long produced;
+
+    public GzipEncodingInputStream(InputStream source, int level) {
+        this.source = new CheckedInputStream(source, new CRC32());
+        // Raw deflate; the header and trailer are written here
+        this.deflater = new Deflater(level, true);
+        this.body = new DeflaterInputStream(this.source, deflater, BUFFER_SIZE);
+        this.current = new ByteArrayInputStream(HEADER);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (true) {
+            int read = current.read(buffer, offset, length);
+            if (read > 0) {
+                produced += read;
+                return read;
+            }
+            if (current instanceof ByteArrayInputStream && trailerQueued) {
+                return -1;
+            }
+            if (current instanceof ByteArrayInputStream) {
+                current = body;
+            } else if (read == -1) {
+                current = trailer();
+                trailerQueued = true;
+            }
+        }
+    }
+
+    /** Compressed bytes handed out so far; the stored size once the stream is exhausted. */
+    public long produced() {
+        return produced;
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        source.close();
+    }
+
+    private InputStream trailer() {
+        ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        trailer.putInt((int) source.getChecksum().getValue());
+        // ISIZE is the input length modulo 2^32
+        trailer.putInt((int) deflater.getBytesRead());
+        return new ByteArrayInputStream(trailer.array());
+    }
+}
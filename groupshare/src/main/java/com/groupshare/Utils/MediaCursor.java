@@ -0,0 +1,46 @@
+package com.groupshare.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import com.groupshare.Entitys.Media;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Opaque keyset cursor for album listings: the {@code (uploaded_at, id)} of the
+ * last row a client has already seen.
+ */
+@RequiredArgsConstructor
+@Data
+public class MediaCursor {
+
+    private final Instant uploadedAt;
+    private final UUID id;
+
+    public static MediaCursor after(Media media) {
+        return new MediaCursor(media.getUploadedAt(), media.getId());
+    }
+
+    public String encode() {
+        String raw = uploadedAt.toString() + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException when the cursor was not produced by {@link #encode()}
+     */
+    public static MediaCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new MediaCursor(Instant.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+        }
+    }
+}
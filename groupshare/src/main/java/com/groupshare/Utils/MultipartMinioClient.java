@@ -0,0 +1,57 @@
+package com.groupshare.Utils;
+
+import java.util.Map;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+
+import io.minio.ListPartsResponse;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.messages.Part;
+
+/**
+ * Exposes the low-level S3 multipart calls that {@link MinioAsyncClient} keeps
+ * protected, so parts can be created, uploaded and completed independently.
+ */
+public class MultipartMinioClient extends MinioAsyncClient {
+
+    public MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    public String createMultipartUpload(String bucketName, String objectName, Map<String, String> headers)
+            throws Exception {
+        return createMultipartUploadAsync(bucketName, null, objectName, toMultimap(headers), null)
+                .get()
+                .result()
+                .uploadId();
+    }
+
+    public String uploadPart(String bucketName, String objectName, String uploadId, int partNumber, byte[] data,
+            int length) throws Exception {
+        return uploadPartAsync(bucketName, null, objectName, data, length, uploadId, partNumber, null, null)
+                .get()
+                .etag();
+    }
+
+    public ObjectWriteResponse completeMultipartUpload(String bucketName, String objectName, String uploadId,
+            Part[] parts) throws Exception {
+        return completeMultipartUploadAsync(bucketName, null, objectName, uploadId, parts, null, null).get();
+    }
+
+    public void abortMultipartUpload(String bucketName, String objectName, String uploadId) throws Exception {
+        abortMultipartUploadAsync(bucketName, null, objectName, uploadId, null, null).get();
+    }
+
+    public ListPartsResponse listParts(String bucketName, String objectName, String uploadId, int maxParts,
+            int partNumberMarker) throws Exception {
+        return listPartsAsync(bucketName, null, objectName, maxParts, partNumberMarker, uploadId, null, null).get();
+    }
+
+    private static Multimap<String, String> toMultimap(Map<String, String> headers) {
+        Multimap<String, String> multimap = HashMultimap.create();
+        headers.forEach(multimap::put);
+        return multimap;
+    }
+}
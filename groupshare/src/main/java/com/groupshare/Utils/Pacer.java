@@ -0,0 +1,23 @@
+package com.groupshare.Utils;
+
+import java.time.Duration;
+
+/**
+ * Spaces out background work on storage, such as migrations and
+ * reconciliation, so it does not compete with user traffic for MinIO.
+ * Meant for a single thread.
+ */
+public class Pacer {
+
+    private long nextAt;
+
+    /** Blocks until the next operation fits within {@code perSecond}. */
+    public void pace(int perSecond) throws InterruptedException {
+        long now = System.nanoTime();
+        long wait = nextAt - now;
+        if (wait > 0) {
+            Thread.sleep(Duration.ofNanos(wait));
+        }
+        nextAt = Math.max(now, nextAt) + 1_000_000_000L / Math.max(perSecond, 1);
+    }
+}
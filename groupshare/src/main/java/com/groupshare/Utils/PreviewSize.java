@@ -0,0 +1,33 @@
+package com.groupshare.Utils;
+
+import java.util.Locale;
+
+/**
+ * Derivatives generated for image uploads, bounded by their longest edge.
+ */
+public enum PreviewSize {
+    SMALL(160),
+    MEDIUM(480),
+    WEB(1600);
+
+    private final int maxDimension;
+
+    PreviewSize(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown size name
+     */
+    public static PreviewSize fromName(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,129 @@
+package com.groupshare.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Reads an upload exactly once: the type is sniffed from a buffered prefix
+ * that is replayed afterwards, and a SHA-256 digest and the size are computed
+ * while the bytes stream into storage.
+ */
+public class UploadPipeline implements Closeable {
+
+    // Tika's magic detection looks at most 64 KiB into the stream.
+    private static final int PREFIX_BUFFER_SIZE = 64 * 1024;
+
+    private final BufferedInputStream buffered;
+    private final MessageDigest digest;
+    private final DigestInputStream stream;
+    private final long maxSize;
+    private long size;
+    private volatile Exception abortedBy;
+
+    public UploadPipeline(InputStream source) {
+        this(source, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reading past {@code maxSize} bytes fails with {@link TooLargeException},
+     * for sources whose length is not known up front.
+     */
+    public UploadPipeline(InputStream source, long maxSize) {
+        this.buffered = new BufferedInputStream(source, PREFIX_BUFFER_SIZE);
+        this.maxSize = maxSize;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        this.stream = new DigestInputStream(buffered, digest) {
+            @Override
+            public int read() throws IOException {
+                checkAborted();
+                int read = super.read();
+                if (read != -1) {
+                    count(1);
+                }
+                return read;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                checkAborted();
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    count(read);
+                }
+                return read;
+            }
+        };
+    }
+
+    /**
+     * Must be called before {@link #stream()} is consumed; the inspected prefix
+     * is reset and still flows through the digest.
+     */
+    public String detectType() throws Exception {
+        return FileValidator.getFileType(buffered);
+    }
+
+    public InputStream stream() {
+        return stream;
+    }
+
+    /**
+     * Hex-encoded SHA-256 of everything read so far. Any unread tail is drained
+     * first so the digest always covers the whole upload.
+     */
+    public String hash() throws IOException {
+        stream.transferTo(OutputStream.nullOutputStream());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Bytes read so far; the full size once {@link #hash()} has been called.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Makes the next read of {@link #stream()} fail, from any thread, so a put
+     * that is consuming it stops without reading the rest of the upload.
+     */
+    public void abort(Exception reason) {
+        abortedBy = reason;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    private void checkAborted() throws IOException {
+        Exception reason = abortedBy;
+        if (reason != null) {
+            throw new IOException("Upload aborted: " + reason.getMessage(), reason);
+        }
+    }
+
+    private void count(int read) throws TooLargeException {
+        size += read;
+        if (size > maxSize) {
+            throw new TooLargeException(maxSize);
+        }
+    }
+
+    public static class TooLargeException extends IOException {
+        public TooLargeException(long maxSize) {
+            super("Upload exceeds " + maxSize + " bytes");
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.groupshare.Utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a ZIP archive to a stream in a single pass, without knowing sizes or
+ * checksums up front. Every entry has a data descriptor after its data, so
+ * STORED entries work without reading the source twice, and ZIP64 records are
+ * written wherever a size, offset or entry count outgrows the classic format.
+ *
+ * <p>{@link java.util.zip.ZipOutputStream} cannot do this: it needs the CRC of
+ * a STORED entry before its data, and only marks an entry as ZIP64 once the
+ * damage is done.
+ *
+ * <p>Only {@link #finish()} writes the central directory. Closing without it,
+ * e.g. after an entry failed halfway, leaves an archive that readers reject
+ * instead of one that looks complete with entries missing.
+ */
+public class ZipStreamWriter implements Closeable {
+
+    private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+    private static final int ZIP64_ENTRY_LIMIT = 0xFFFF;
+
+    // Deflate can expand incompressible input slightly, so large entries get ZIP64 early.
+    private static final long DEFLATE_MARGIN = 16L * 1024 * 1024;
+
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+
+    // Bit 3: sizes and CRC follow in a data descriptor; bit 11: names are UTF-8.
+    private static final int FLAGS = 0x0808;
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private final OutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 crc = new CRC32();
+    private final byte[] readBuffer = new byte[64 * 1024];
+    private final byte[] deflateBuffer = new byte[64 * 1024];
+    private final List<Entry> entries = new ArrayList<>();
+    private long offset;
+    private boolean finished;
+
+    public ZipStreamWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Copies {@code content} into a new entry. {@code expectedSize} decides
+     * whether the entry gets ZIP64 sizes; pass -1 when it is unknown.
+     */
+    public void writeEntry(String name, Instant modified, long expectedSize, boolean deflate, InputStream content)
+            throws IOException {
+        Entry entry = new Entry(name.getBytes(StandardCharsets.UTF_8), dosDateTime(modified),
+                deflate ? METHOD_DEFLATED : METHOD_STORED, offset,
+                expectedSize < 0 || expectedSize >= ZIP64_LIMIT - (deflate ? DEFLATE_MARGIN : 0));
+
+        writeLocalHeader(entry);
+
+        crc.reset();
+        long compressedStart = offset;
+        int read;
+        while ((read = content.read(readBuffer)) != -1) {
+            crc.update(readBuffer, 0, read);
+            entry.size += read;
+            if (deflate) {
+                deflater.setInput(readBuffer, 0, read);
+                while (!deflater.needsInput()) {
+                    drainDeflater();
+                }
+            } else {
+                write(readBuffer, 0, read);
+            }
+        }
+        if (deflate) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                drainDeflater();
+            }
+            deflater.reset();
+        }
+        entry.crc = crc.getValue();
+        entry.compressedSize = offset - compressedStart;
+
+        if (!entry.zip64 && (entry.size >= ZIP64_LIMIT || entry.compressedSize >= ZIP64_LIMIT)) {
+            throw new IOException("Entry " + name + " outgrew its announced size of " + expectedSize);
+        }
+        writeDataDescriptor(entry);
+        entries.add(entry);
+    }
+
+    /**
+     * Writes the central directory; the underlying stream is left open.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+
+        long directoryStart = offset;
+        for (Entry entry : entries) {
+            writeCentralDirectoryHeader(entry);
+        }
+        long directorySize = offset - directoryStart;
+
+        if (entries.size() >= ZIP64_ENTRY_LIMIT || directoryStart >= ZIP64_LIMIT || directorySize >= ZIP64_LIMIT) {
+            long zip64EndStart = offset;
+            write(buffer(56)
+                    .putInt(0x06064b50)
+                    .putLong(44)
+                    .putShort((short) VERSION_ZIP64)
+                    .putShort((short) VERSION_ZIP64)
+                    .putInt(0)
+                    .putInt(0)
+                    .putLong(entries.size())
+                    .putLong(entries.size())
+                    .putLong(directorySize)
+                    .putLong(directoryStart));
+            write(buffer(20)
+                    .putInt(0x07064b50)
+                    .putInt(0)
+                    .putLong(zip64EndStart)
+                    .putInt(1));
+        }
+
+        write(buffer(22)
+                .putInt(0x06054b50)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) Math.min(entries.size(), ZIP64_ENTRY_LIMIT))
+                .putShort((short) Math.min(entries.size(), ZIP64_ENTRY_LIMIT))
+                .putInt((int) Math.min(directorySize, ZIP64_LIMIT))
+                .putInt((int) Math.min(directoryStart, ZIP64_LIMIT))
+                .putShort((short) 0));
+        out.flush();
+    }
+
+    /**
+     * Releases the deflater; the archive is only complete if {@link #finish()}
+     * was called first.
+     */
+    @Override
+    public void close() {
+        deflater.end();
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        ByteBuffer header = buffer(30 + entry.name.length + (entry.zip64 ? 20 : 0))
+                .putInt(0x04034b50)
+                .putShort((short) (entry.zip64 ? VERSION_ZIP64 : VERSION_DEFAULT))
+                .putShort((short) FLAGS)
+                .putShort((short) entry.method)
+                .putInt(entry.dosTime)
+                .putInt(0)
+                .putInt(entry.zip64 ? (int) ZIP64_LIMIT : 0)
+                .putInt(entry.zip64 ? (int) ZIP64_LIMIT : 0)
+                .putShort((short) entry.name.length)
+                .putShort((short) (entry.zip64 ? 20 : 0))
+                .put(entry.name);
+        if (entry.zip64) {
+            // Real sizes follow in the data descriptor
+            header.putShort((short) 0x0001).putShort((short) 16).putLong(0).putLong(0);
+        }
+        write(header);
+    }
+
+    private void writeDataDescriptor(Entry entry) throws IOException {
+        if (entry.zip64) {
+            write(buffer(24).putInt(0x08074b50).putInt((int) entry.crc)
+                    .putLong(entry.compressedSize).putLong(entry.size));
+        } else {
+            write(buffer(16).putInt(0x08074b50).putInt((int) entry.crc)
+                    .putInt((int) entry.compressedSize).putInt((int) entry.size));
+        }
+    }
+
+    private void writeCentralDirectoryHeader(Entry entry) throws IOException {
+        boolean zip64 = entry.size >= ZIP64_LIMIT || entry.compressedSize >= ZIP64_LIMIT
+                || entry.headerOffset >= ZIP64_LIMIT;
+        int version = zip64 || entry.zip64 ? VERSION_ZIP64 : VERSION_DEFAULT;
+        ByteBuffer header = buffer(46 + entry.name.length + (zip64 ? 28 : 0))
+                .putInt(0x02014b50)
+                .putShort((short) VERSION_ZIP64)
+                .putShort((short) version)
+                .putShort((short) FLAGS)
+                .putShort((short) entry.method)
+                .putInt(entry.dosTime)
+                .putInt((int) entry.crc)
+                .putInt(zip64 ? (int) ZIP64_LIMIT : (int) entry.compressedSize)
+                .putInt(zip64 ? (int) ZIP64_LIMIT : (int) entry.size)
+                .putShort((short) entry.name.length)
+                .putShort((short) (zip64 ? 28 : 0))
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putInt(0)
+                .putInt(zip64 ? (int) ZIP64_LIMIT : (int) entry.headerOffset)
+                .put(entry.name);
+        if (zip64) {
+            header.putShort((short) 0x0001).putShort((short) 24)
+                    .putLong(entry.size).putLong(entry.compressedSize).putLong(entry.headerOffset);
+        }
+        write(header);
+    }
+
+    private void drainDeflater() throws IOException {
+        int length = deflater.deflate(deflateBuffer);
+        if (length > 0) {
+            write(deflateBuffer, 0, length);
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        write(buffer.array(), 0, buffer.position());
+    }
+
+    private void write(byte[] bytes, int from, int length) throws IOException {
+        out.write(bytes, from, length);
+        offset += length;
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** MS-DOS date in the high half, time in the low half, as the headers store them. */
+    private static int dosDateTime(Instant instant) {
+        LocalDateTime time = LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+        if (time.getYear() < 1980) {
+            time = LocalDateTime.of(1980, 1, 1, 0, 0);
+        }
+        int date = (time.getYear() - 1980) << 9 | time.getMonthValue() << 5 | time.getDayOfMonth();
+        int clock = time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+        return date << 16 | clock;
+    }
+
+    private static class Entry {
+        final byte[] name;
+        final int dosTime;
+        final int method;
+        final long headerOffset;
+        final boolean zip64;
+        long crc;
+        long size;
+        long compressedSize;
+
+        Entry(byte[] name, int dosTime, int method, long headerOffset, boolean zip64) {
+            this.name = name;
+            this.dosTime = dosTime;
+            this.method = method;
+            this.headerOffset = headerOffset;
+            this.zip64 = zip64;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+-- Tables and columns added on top of the baseline. IF NOT EXISTS throughout,
+-- because a database that ran ddl-auto part of the way through may already
+-- have some of them.
+
+-- Shared-bucket layout and asynchronous deletes
+ALTER TABLE albums ADD COLUMN IF NOT EXISTS bucket varchar(255);
+ALTER TABLE albums ADD COLUMN IF NOT EXISTS changed_at timestamp(6) with time zone;
+ALTER TABLE albums ADD COLUMN IF NOT EXISTS deleted_at timestamp(6) with time zone;
+ALTER TABLE albums ADD COLUMN IF NOT EXISTS purged_at timestamp(6) with time zone;
+ALTER TABLE albums ADD COLUMN IF NOT EXISTS purged_objects bigint;
+
+-- Uploads are reserved as PENDING rows; everything already stored is committed
+ALTER TABLE media ADD COLUMN IF NOT EXISTS status varchar(16) DEFAULT 'COMMITTED' NOT NULL;
+ALTER TABLE media DROP CONSTRAINT IF EXISTS media_status_check;
+ALTER TABLE media ADD CONSTRAINT media_status_check CHECK (status IN ('PENDING', 'COMMITTED'));
+
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    id          uuid                        NOT NULL,
+    album_id    uuid                        NOT NULL,
+    media_id    uuid                        NOT NULL,
+    file_name   varchar(255)                NOT NULL,
+    file_type   varchar(255)                NOT NULL,
+    bucket      varchar(255)                NOT NULL,
+    object_name varchar(255)                NOT NULL,
+    upload_id   varchar(255)                NOT NULL,
+    created_at  timestamp(6) with time zone NOT NULL,
+    expires_at  timestamp(6) with time zone NOT NULL,
+    CONSTRAINT upload_sessions_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS presigned_uploads (
+    id          uuid                        NOT NULL,
+    album_id    uuid                        NOT NULL,
+    media_id    uuid                        NOT NULL,
+    file_name   varchar(255)                NOT NULL,
+    file_type   varchar(255)                NOT NULL,
+    file_size   bigint                      NOT NULL,
+    md5         varchar(255),
+    bucket      varchar(255)                NOT NULL,
+    object_name varchar(255)                NOT NULL,
+    created_at  timestamp(6) with time zone NOT NULL,
+    expires_at  timestamp(6) with time zone NOT NULL,
+    CONSTRAINT presigned_uploads_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS upload_outbox (
+    media_id    uuid                        NOT NULL,
+    album_id    uuid                        NOT NULL,
+    bucket      varchar(255)                NOT NULL,
+    object_name varchar(255)                NOT NULL,
+    file_size   bigint                      NOT NULL,
+    created_at  timestamp(6) with time zone NOT NULL,
+    CONSTRAINT upload_outbox_pkey PRIMARY KEY (media_id)
+);
+
+CREATE TABLE IF NOT EXISTS reconciler_checkpoints (
+    name            varchar(255)                NOT NULL,
+    album_id        uuid,
+    after_media_id  uuid,
+    pass_started_at timestamp(6) with time zone,
+    updated_at      timestamp(6) with time zone,
+    CONSTRAINT reconciler_checkpoints_pkey PRIMARY KEY (name)
+);
@@ -0,0 +1,22 @@
+-- The schema as Hibernate's ddl-auto left it before the migrations took over:
+-- albums and media only. Databases created that way are baselined at this
+-- version (spring.flyway.baseline-on-migrate) and only run the migrations
+-- after it, so everything added since lives in those.
+
+CREATE TABLE albums (
+    id         uuid                        NOT NULL,
+    name       varchar(255)                NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    CONSTRAINT albums_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE media (
+    id          uuid                        NOT NULL,
+    album_id    uuid                        NOT NULL,
+    file_name   varchar(255)                NOT NULL,
+    file_type   varchar(255)                NOT NULL,
+    file_size   bigint                      NOT NULL,
+    uploaded_at timestamp(6) with time zone NOT NULL,
+    hash        varchar(255)                NOT NULL,
+    CONSTRAINT media_pkey PRIMARY KEY (id)
+);
@@ -0,0 +1,22 @@
+-- Built CONCURRENTLY so existing installations keep taking writes while the
+-- indexes are built; IF NOT EXISTS because a database baselined from
+-- ddl-auto may already have some of them.
+
+-- Album lookup by name on create
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_albums_name ON albums (name);
+
+-- Tombstones still waiting for the purger
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_albums_unpurged ON albums (deleted_at)
+    WHERE deleted_at IS NOT NULL AND purged_at IS NULL;
+
+-- Keyset-paginated listing, and every lookup by album
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_media_album_uploaded_at_id ON media (album_id, uploaded_at, id);
+
+-- The storage reconciler's walk in key order
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_media_album_id_id ON media (album_id, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_upload_sessions_album_id ON upload_sessions (album_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_upload_sessions_expires_at ON upload_sessions (expires_at);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_presigned_uploads_album_id ON presigned_uploads (album_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_presigned_uploads_expires_at ON presigned_uploads (expires_at);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_upload_outbox_created_at ON upload_outbox (created_at);
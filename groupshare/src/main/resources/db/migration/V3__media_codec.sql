@@ -0,0 +1,8 @@
+-- How the stored object is encoded. Rows that predate this are stored as
+-- uploaded, which the default records without rewriting the table.
+ALTER TABLE media ADD COLUMN IF NOT EXISTS codec varchar(16) DEFAULT 'IDENTITY' NOT NULL;
+ALTER TABLE media DROP CONSTRAINT IF EXISTS media_codec_check;
+ALTER TABLE media ADD CONSTRAINT media_codec_check CHECK (codec IN ('IDENTITY', 'GZIP'));
+
+-- Size of the object in storage; null while it equals file_size
+ALTER TABLE media ADD COLUMN IF NOT EXISTS stored_size bigint;
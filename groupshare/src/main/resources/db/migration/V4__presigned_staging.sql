@@ -0,0 +1,10 @@
+-- Presigned PUTs go to a staging key and are copied to object_name on
+-- finalize, so the URL cannot replace a validated object. Uploads issued
+-- before this wrote to object_name itself, which staging then points at.
+ALTER TABLE presigned_uploads ADD COLUMN IF NOT EXISTS staging_object_name varchar(255);
+UPDATE presigned_uploads SET staging_object_name = object_name WHERE staging_object_name IS NULL;
+ALTER TABLE presigned_uploads ALTER COLUMN staging_object_name SET NOT NULL;
+
+-- Finalized uploads are kept until their URL expires, so the janitor can
+-- remove anything put to the staging key after finalize
+ALTER TABLE presigned_uploads ADD COLUMN IF NOT EXISTS finalized_at timestamp(6) with time zone;
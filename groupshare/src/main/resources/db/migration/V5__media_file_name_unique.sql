@@ -0,0 +1,24 @@
+-- Databases from before this may hold duplicate names, which the index
+-- would reject, so those are renamed first: the oldest upload keeps its
+-- name, the others get their media id appended before the extension.
+WITH ranked AS (
+    SELECT id, row_number() OVER (PARTITION BY album_id, file_name ORDER BY uploaded_at, id) AS n
+    FROM media
+)
+UPDATE media m
+SET file_name = left(regexp_replace(m.file_name, '\.[^./]{1,16}$', ''), 190) || ' (' || m.id || ')'
+        || coalesce(substring(m.file_name from '\.[^./]{1,16}$'), '')
+FROM ranked r
+WHERE r.id = m.id AND r.n > 1;
+
+-- A CONCURRENTLY build that failed leaves an INVALID index behind, which
+-- IF NOT EXISTS would keep forever
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+               WHERE c.relname = 'uk_media_album_file_name' AND NOT i.indisvalid) THEN
+        DROP INDEX uk_media_album_file_name;
+    END IF;
+END $$;
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_media_album_file_name ON media (album_id, file_name);
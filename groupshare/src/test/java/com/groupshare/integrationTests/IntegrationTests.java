@@ -1,40 +1,103 @@
 package com.groupshare.integrationTests;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.imageio.ImageIO;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.groupshare.Entitys.Album;
+import com.groupshare.Entitys.AlbumRepository;
+import com.groupshare.Entitys.Media;
+import com.groupshare.Services.MultipartUploadEngine;
+import com.groupshare.Services.PreviewGenerator;
+import com.groupshare.Services.StorageLayout;
+import com.groupshare.Services.StorageReconciler;
+import com.groupshare.Services.UploadCommitter;
+import com.groupshare.Services.UploadSessionJanitor;
+import com.groupshare.Storage.ObjectDiskCache;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Utils.ByteRange;
+import com.groupshare.Utils.Helpers;
+import com.groupshare.Utils.MultipartMinioClient;
 import com.groupshare.configuration.AbstractTestContainers;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.SneakyThrows;
 
-@SpringBootTest
+// Downloads go through the disk cache, which is off by default; the smallest
+// part size keeps multipart uploads in the tests to a few MiB
+@SpringBootTest(properties = { "groupshare.object-cache.enabled=true",
+                "groupshare.object-cache.directory=${java.io.tmpdir}/groupshare-test-object-cache",
+                "minio.multipart.part-size=5MB" })
 @AutoConfigureMockMvc
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 @Import(AbstractTestContainers.class)
@@ -46,11 +109,52 @@ class IntegrationTests {
         @Autowired
         private JdbcTemplate jdbcTemplate;
 
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        @Autowired
+        private UploadCommitter uploadCommitter;
+
+        @Autowired
+        private AlbumRepository albumRepository;
+
+        @Autowired
+        private StorageLayout storageLayout;
+
+        @Autowired
+        private StorageBackend storageBackend;
+
+        @Autowired
+        private StorageReconciler storageReconciler;
+
+        @Autowired
+        private MultipartUploadEngine multipartUploadEngine;
+
+        @Autowired
+        private PreviewGenerator previewGenerator;
+
+        @Autowired
+        private UploadSessionJanitor uploadSessionJanitor;
+
+        @Autowired
+        private ObjectDiskCache objectDiskCache;
+
+        // Real calls unless a test stubs a failure
+        @MockitoSpyBean
+        private MultipartMinioClient multipartMinioClient;
+
+        @Value("${groupshare.object-cache.directory}")
+        private Path objectCacheDirectory;
+
         private final ObjectMapper objectMapper = new ObjectMapper();
 
         @AfterEach
         void cleanup() throws Exception {
                 // 1. Clean database tables
+                jdbcTemplate.execute("DELETE FROM upload_sessions");
+                jdbcTemplate.execute("DELETE FROM presigned_uploads");
+                jdbcTemplate.execute("DELETE FROM upload_outbox");
+                jdbcTemplate.execute("DELETE FROM reconciler_checkpoints");
                 jdbcTemplate.execute("DELETE FROM media");
                 jdbcTemplate.execute("DELETE FROM albums");
         }
@@ -119,11 +223,25 @@ class IntegrationTests {
                 Assertions.assertEquals(0, jdbcTemplate
                                 .queryForList("SELECT * FROM media WHERE id = ?", UUID.fromString(mediaId)).size());
 
-                // 7. Delete album
+                // 7. Delete album: tombstoned right away, purged in the background
                 mockMvc.perform(delete("/api/albums/" + albumId))
-                                .andExpect(status().isNoContent());
+                                .andExpect(status().isAccepted())
+                                .andExpect(header().string("Location", "/api/albums/" + albumId + "/deletion"));
+                Assertions.assertEquals(1, jdbcTemplate.queryForList(
+                                "SELECT * FROM albums WHERE id = ? AND deleted_at IS NOT NULL",
+                                UUID.fromString(albumId)).size());
+
+                String state = "";
+                for (int attempt = 0; attempt < 50 && !state.equals("DONE"); attempt++) {
+                        Thread.sleep(100);
+                        state = objectMapper.readTree(mockMvc.perform(get("/api/albums/" + albumId + "/deletion"))
+                                        .andExpect(status().isOk())
+                                        .andReturn().getResponse().getContentAsString()).get("state").asText();
+                }
+                Assertions.assertEquals("DONE", state);
                 Assertions.assertEquals(0, jdbcTemplate
-                                .queryForList("SELECT * FROM albums WHERE id = ?", UUID.fromString(albumId)).size());
+                                .queryForList("SELECT * FROM media WHERE album_id = ?", UUID.fromString(albumId))
+                                .size());
         }
 
         @Test
@@ -162,6 +280,15 @@ class IntegrationTests {
                                 .readTree(albumResult.getResponse().getContentAsString()).get("id").asText()));
         }
 
+        /** The completed local copy of a media's object, or null. */
+        private Path cachedCopyOf(String mediaId) throws IOException {
+                try (Stream<Path> files = Files.list(objectCacheDirectory.toAbsolutePath().normalize())) {
+                        return files.filter(path -> path.getFileName().toString().startsWith(mediaId + "-")
+                                        && !path.getFileName().toString().endsWith(".part"))
+                                        .findFirst().orElse(null);
+                }
+        }
+
         private static String sha256(byte[] data) throws Exception {
                 MessageDigest digest = MessageDigest.getInstance("SHA-256");
                 return Base64.getEncoder().encodeToString(digest.digest(data));
@@ -198,6 +325,12 @@ class IntegrationTests {
                 JsonNode mediaJson = objectMapper.readTree(mediaResult.getResponse().getContentAsString());
                 String mediaId = mediaJson.get("mediaId").asText();
 
+                // ✅ Assert the stored hash is the SHA-256 of the uploaded bytes
+                String storedHash = jdbcTemplate.queryForObject(
+                                "SELECT hash FROM media WHERE id = ?", String.class, UUID.fromString(mediaId));
+                Assertions.assertEquals(HexFormat.of().formatHex(
+                                MessageDigest.getInstance("SHA-256").digest(fileContent)), storedHash);
+
                 // Step 3: Download File
                 // If your download endpoint writes to disk, check the file on disk
                 // If it returns bytes, check the response body
@@ -213,6 +346,1213 @@ class IntegrationTests {
                 Assertions.assertEquals(uploadHash, downloadHash);
 
                 mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testRangeDownload() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Range Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String albumId = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                .asText();
+
+                byte[] fileContent = "0123456789abcdefghij".getBytes();
+                MockMultipartFile file = new MockMultipartFile("file", "range.txt", "text/plain", fileContent);
+                MvcResult mediaResult = mockMvc.perform(multipart("/api/albums/" + albumId + "/upload")
+                                .file(file))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String mediaId = objectMapper.readTree(mediaResult.getResponse().getContentAsString())
+                                .get("mediaId").asText();
+
+                // Bounded range
+                MvcResult partial = mockMvc.perform(get("/api/media/" + mediaId + "/download")
+                                .header("Range", "bytes=5-9"))
+                                .andExpect(status().isPartialContent())
+                                .andExpect(header().string("Content-Range", "bytes 5-9/20"))
+                                .andExpect(header().longValue("Content-Length", 5))
+                                .andReturn();
+                Assertions.assertArrayEquals("56789".getBytes(), partial.getResponse().getContentAsByteArray());
+
+                // Suffix range
+                MvcResult suffix = mockMvc.perform(get("/api/media/" + mediaId + "/download")
+                                .header("Range", "bytes=-3"))
+                                .andExpect(status().isPartialContent())
+                                .andReturn();
+                Assertions.assertArrayEquals("hij".getBytes(), suffix.getResponse().getContentAsByteArray());
+
+                // Stale If-Range validator falls back to the full body
+                MvcResult stale = mockMvc.perform(get("/api/media/" + mediaId + "/download")
+                                .header("Range", "bytes=0-1")
+                                .header("If-Range", "Thu, 01 Jan 1970 00:00:00 GMT"))
+                                .andExpect(status().isOk())
+                                .andReturn();
+                Assertions.assertArrayEquals(fileContent, stale.getResponse().getContentAsByteArray());
+
+                // Unsatisfiable range
+                mockMvc.perform(get("/api/media/" + mediaId + "/download")
+                                .header("Range", "bytes=100-200"))
+                                .andExpect(status().isRequestedRangeNotSatisfiable())
+                                .andExpect(header().string("Content-Range", "bytes */20"));
+
+                // Headers that do not parse are ignored
+                for (String invalid : List.of("bytes=9-5", "bytes=abc", "items=0-4")) {
+                        MvcResult ignored = mockMvc.perform(get("/api/media/" + mediaId + "/download")
+                                        .header("Range", invalid))
+                                        .andExpect(status().isOk())
+                                        .andExpect(header().doesNotExist("Content-Range"))
+                                        .andReturn();
+                        Assertions.assertArrayEquals(fileContent, ignored.getResponse().getContentAsByteArray());
+                }
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testResumableUploadSession() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Session Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String albumId = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                .asText();
+
+                // 1. Open a session
+                MvcResult sessionResult = mockMvc.perform(post("/api/albums/" + albumId + "/sessions")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"fileName\":\"notes.txt\",\"fileType\":\"text/plain\"}"))
+                                .andExpect(status().isCreated())
+                                .andExpect(jsonPath("$.chunkSize").isNumber())
+                                .andReturn();
+                String sessionId = objectMapper.readTree(sessionResult.getResponse().getContentAsString())
+                                .get("sessionId").asText();
+
+                // 2. Send the only chunk, twice, as a retrying client would
+                byte[] content = "resumable upload content".getBytes();
+                for (int i = 0; i < 2; i++) {
+                        mockMvc.perform(put("/api/sessions/" + sessionId + "/chunks/1").content(content))
+                                        .andExpect(status().isOk())
+                                        .andExpect(jsonPath("$.chunkNumber").value(1));
+                }
+
+                // 3. The server reports what it holds
+                mockMvc.perform(get("/api/sessions/" + sessionId))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.chunks.length()").value(1))
+                                .andExpect(jsonPath("$.chunks[0].size").value(content.length));
+
+                // 4. Finalize into a media row
+                MvcResult mediaResult = mockMvc.perform(post("/api/sessions/" + sessionId + "/complete"))
+                                .andExpect(status().isCreated())
+                                .andExpect(jsonPath("$.fileName").value("notes.txt"))
+                                .andReturn();
+                String mediaId = objectMapper.readTree(mediaResult.getResponse().getContentAsString())
+                                .get("mediaId").asText();
+
+                Assertions.assertEquals(0, jdbcTemplate
+                                .queryForList("SELECT * FROM upload_sessions WHERE id = ?", UUID.fromString(sessionId))
+                                .size());
+
+                MvcResult downloadResult = mockMvc.perform(get("/api/media/" + mediaId + "/download"))
+                                .andExpect(status().isOk())
+                                .andReturn();
+                Assertions.assertArrayEquals(content, downloadResult.getResponse().getContentAsByteArray());
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testBatchUpload() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Batch Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String albumId = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                .asText();
+
+                mockMvc.perform(multipart("/api/albums/" + albumId + "/upload")
+                                .file(new MockMultipartFile("file", "existing.txt", "text/plain", "old".getBytes())))
+                                .andExpect(status().isCreated());
+
+                mockMvc.perform(multipart("/api/albums/" + albumId + "/upload/batch")
+                                .file(new MockMultipartFile("files", "one.txt", "text/plain", "one".getBytes()))
+                                .file(new MockMultipartFile("files", "two.txt", "text/plain", "two".getBytes()))
+                                .file(new MockMultipartFile("files", "two.txt", "text/plain", "again".getBytes()))
+                                .file(new MockMultipartFile("files", "existing.txt", "text/plain", "new".getBytes()))
+                                .file(new MockMultipartFile("files", "bad.exe", "application/octet-stream",
+                                                "badstuff".getBytes())))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.results.length()").value(5))
+                                .andExpect(jsonPath("$.results[0].status").value("CREATED"))
+                                .andExpect(jsonPath("$.results[0].media.mediaId").exists())
+                                .andExpect(jsonPath("$.results[1].status").value("CREATED"))
+                                .andExpect(jsonPath("$.results[2].status").value("CONFLICT"))
+                                .andExpect(jsonPath("$.results[3].status").value("CONFLICT"))
+                                .andExpect(jsonPath("$.results[4].status").value("UNSUPPORTED_TYPE"));
+
+                // ✅ Assert in DB
+                Assertions.assertEquals(3, jdbcTemplate.queryForList(
+                                "SELECT * FROM media WHERE album_id = ?", UUID.fromString(albumId)).size());
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testPreviewGeneration() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Preview Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String albumId = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                .asText();
+
+                BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+                ByteArrayOutputStream png = new ByteArrayOutputStream();
+                ImageIO.write(image, "png", png);
+                MvcResult mediaResult = mockMvc.perform(multipart("/api/albums/" + albumId + "/upload")
+                                .file(new MockMultipartFile("file", "photo.png", "image/png", png.toByteArray())))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String mediaId = objectMapper.readTree(mediaResult.getResponse().getContentAsString())
+                                .get("mediaId").asText();
+
+                mockMvc.perform(get("/api/media/" + mediaId + "/preview").param("size", "huge"))
+                                .andExpect(status().isBadRequest());
+
+                // Generation is asynchronous; until it lands the original is served
+                MvcResult preview = null;
+                for (int attempt = 0; attempt < 50; attempt++) {
+                        MvcResult result = mockMvc.perform(get("/api/media/" + mediaId + "/preview")
+                                        .param("size", "small"))
+                                        .andExpect(status().isOk())
+                                        .andReturn();
+                        if ("image/jpeg".equals(result.getResponse().getContentType())) {
+                                preview = result;
+                                break;
+                        }
+                        Assertions.assertEquals("image/png", result.getResponse().getContentType());
+                        Thread.sleep(200);
+                }
+                Assertions.assertNotNull(preview);
+
+                BufferedImage thumbnail = ImageIO.read(
+                                new ByteArrayInputStream(preview.getResponse().getContentAsByteArray()));
+                Assertions.assertEquals(160, thumbnail.getWidth());
+                Assertions.assertEquals(120, thumbnail.getHeight());
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testPresignedUploadAndDownload() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Presigned Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String albumId = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                .asText();
+
+                byte[] content = "uploaded straight to storage".getBytes();
+                String md5 = HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content));
+
+                MvcResult uploadResult = mockMvc.perform(post("/api/albums/" + albumId + "/presigned-uploads")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(Map.of("fileName", "direct.txt",
+                                                "fileType", "text/plain", "fileSize", content.length, "md5", md5))))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                JsonNode upload = objectMapper.readTree(uploadResult.getResponse().getContentAsString());
+                String uploadId = upload.get("uploadId").asText();
+
+                // Nothing stored yet
+                mockMvc.perform(post("/api/presigned-uploads/" + uploadId + "/finalize"))
+                                .andExpect(status().isConflict());
+
+                HttpClient client = HttpClient.newHttpClient();
+                HttpResponse<Void> put = client.send(HttpRequest.newBuilder(URI.create(upload.get("url").asText()))
+                                .PUT(HttpRequest.BodyPublishers.ofByteArray(content))
+                                .build(), HttpResponse.BodyHandlers.discarding());
+                Assertions.assertEquals(200, put.statusCode());
+
+                MvcResult mediaResult = mockMvc.perform(post("/api/presigned-uploads/" + uploadId + "/finalize"))
+                                .andExpect(status().isCreated())
+                                .andExpect(jsonPath("$.fileSize").value(content.length))
+                                .andReturn();
+                String mediaId = objectMapper.readTree(mediaResult.getResponse().getContentAsString())
+                                .get("mediaId").asText();
+                Assertions.assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)),
+                                jdbcTemplate.queryForObject("SELECT hash FROM media WHERE id = ?", String.class,
+                                                UUID.fromString(mediaId)));
+
+                // The URL only reaches the staging key, so it cannot replace the checked object
+                String bucket = jdbcTemplate.queryForObject("SELECT bucket FROM presigned_uploads WHERE id = ?",
+                                String.class, UUID.fromString(uploadId));
+                String stagingKey = jdbcTemplate.queryForObject(
+                                "SELECT staging_object_name FROM presigned_uploads WHERE id = ?", String.class,
+                                UUID.fromString(uploadId));
+                Assertions.assertNull(storageBackend.stat(bucket, stagingKey));
+                HttpResponse<Void> again = client.send(HttpRequest.newBuilder(URI.create(upload.get("url").asText()))
+                                .PUT(HttpRequest.BodyPublishers.ofByteArray("replaced".getBytes()))
+                                .build(), HttpResponse.BodyHandlers.discarding());
+                Assertions.assertEquals(200, again.statusCode());
+                mockMvc.perform(post("/api/presigned-uploads/" + uploadId + "/finalize"))
+                                .andExpect(status().isConflict());
+                Assertions.assertArrayEquals(content, mockMvc.perform(get("/api/media/" + mediaId + "/download"))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getContentAsByteArray());
+
+                // Once the URL has expired the janitor removes what was put after finalize
+                jdbcTemplate.update("UPDATE presigned_uploads SET expires_at = ? WHERE id = ?",
+                                Timestamp.from(Instant.now().minusSeconds(1)), UUID.fromString(uploadId));
+                uploadSessionJanitor.purgeExpiredSessions();
+                Assertions.assertNull(storageBackend.stat(bucket, stagingKey));
+                Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                                "SELECT COUNT(*) FROM presigned_uploads WHERE id = ?", Integer.class,
+                                UUID.fromString(uploadId)));
+
+                // A mismatching upload is rejected and leaves no object behind
+                MvcResult wrongResult = mockMvc.perform(post("/api/albums/" + albumId + "/presigned-uploads")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(Map.of("fileName", "wrong.txt",
+                                                "fileType", "text/plain", "fileSize", content.length + 1))))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                JsonNode wrong = objectMapper.readTree(wrongResult.getResponse().getContentAsString());
+                client.send(HttpRequest.newBuilder(URI.create(wrong.get("url").asText()))
+                                .PUT(HttpRequest.BodyPublishers.ofByteArray(content))
+                                .build(), HttpResponse.BodyHandlers.discarding());
+                mockMvc.perform(post("/api/presigned-uploads/" + wrong.get("uploadId").asText() + "/finalize"))
+                                .andExpect(status().isUnprocessableEntity());
+                Map<String, Object> wrongRow = jdbcTemplate.queryForMap(
+                                "SELECT object_name, staging_object_name FROM presigned_uploads WHERE id = ?",
+                                UUID.fromString(wrong.get("uploadId").asText()));
+                Assertions.assertNull(storageBackend.stat(bucket, (String) wrongRow.get("staging_object_name")));
+                Assertions.assertNull(storageBackend.stat(bucket, (String) wrongRow.get("object_name")));
+
+                // A name taken while the upload was open answers 409 and releases the claim
+                MvcResult raceResult = mockMvc.perform(post("/api/albums/" + albumId + "/presigned-uploads")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(Map.of("fileName", "race.txt",
+                                                "fileType", "text/plain", "fileSize", content.length))))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                JsonNode race = objectMapper.readTree(raceResult.getResponse().getContentAsString());
+                UUID raceId = UUID.fromString(race.get("uploadId").asText());
+                client.send(HttpRequest.newBuilder(URI.create(race.get("url").asText()))
+                                .PUT(HttpRequest.BodyPublishers.ofByteArray(content))
+                                .build(), HttpResponse.BodyHandlers.discarding());
+                jdbcTemplate.update("INSERT INTO media (id, album_id, file_name, file_type, file_size, uploaded_at, "
+                                + "hash) VALUES (?, ?, 'race.txt', 'text/plain', 0, ?, '')",
+                                UUID.randomUUID(), UUID.fromString(albumId), Timestamp.from(Instant.now()));
+                mockMvc.perform(post("/api/presigned-uploads/" + raceId + "/finalize"))
+                                .andExpect(status().isConflict());
+                Map<String, Object> raceRow = jdbcTemplate.queryForMap(
+                                "SELECT object_name, finalized_at FROM presigned_uploads WHERE id = ?", raceId);
+                Assertions.assertNull(raceRow.get("finalized_at"));
+                Assertions.assertNull(storageBackend.stat(bucket, (String) raceRow.get("object_name")));
+
+                // A claimed upload cannot be finalized a second time
+                jdbcTemplate.update("UPDATE presigned_uploads SET finalized_at = ? WHERE id = ?",
+                                Timestamp.from(Instant.now()), raceId);
+                mockMvc.perform(post("/api/presigned-uploads/" + raceId + "/finalize"))
+                                .andExpect(status().isConflict());
+
+                MvcResult downloadResult = mockMvc.perform(get("/api/media/" + mediaId + "/presigned-download"))
+                                .andExpect(status().isOk())
+                                .andReturn();
+                String url = objectMapper.readTree(downloadResult.getResponse().getContentAsString()).get("url")
+                                .asText();
+                HttpResponse<byte[]> downloaded = client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                                HttpResponse.BodyHandlers.ofByteArray());
+                Assertions.assertEquals(200, downloaded.statusCode());
+                Assertions.assertArrayEquals(content, downloaded.body());
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testConditionalRequests() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Conditional Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String albumId = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                .asText();
+
+                byte[] content = "cache me if you can".getBytes();
+                MvcResult mediaResult = mockMvc.perform(multipart("/api/albums/" + albumId + "/upload")
+                                .file(new MockMultipartFile("file", "cached.txt", "text/plain", content)))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String mediaId = objectMapper.readTree(mediaResult.getResponse().getContentAsString())
+                                .get("mediaId").asText();
+
+                // Downloads carry the content hash as a strong validator
+                String etag = "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content))
+                                + "\"";
+                MvcResult download = mockMvc.perform(get("/api/media/" + mediaId + "/download"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", etag))
+                                .andExpect(header().exists("Last-Modified"))
+                                .andReturn();
+
+                mockMvc.perform(get("/api/media/" + mediaId + "/download").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag));
+                mockMvc.perform(get("/api/media/" + mediaId + "/download")
+                                .header("If-Modified-Since", download.getResponse().getHeader("Last-Modified")))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(get("/api/media/" + mediaId + "/download")
+                                .header("Range", "bytes=0-4")
+                                .header("If-Range", etag))
+                                .andExpect(status().isPartialContent());
+
+                // Listings get a weak validator that only moves when the album changes
+                MvcResult listing = mockMvc.perform(get("/api/albums/" + albumId + "/media"))
+                                .andExpect(status().isOk())
+                                .andReturn();
+                String listingEtag = listing.getResponse().getHeader("ETag");
+                Assertions.assertTrue(listingEtag.startsWith("W/"));
+
+                mockMvc.perform(get("/api/albums/" + albumId + "/media").header("If-None-Match", listingEtag))
+                                .andExpect(status().isNotModified());
+
+                mockMvc.perform(multipart("/api/albums/" + albumId + "/upload")
+                                .file(new MockMultipartFile("file", "newer.txt", "text/plain", "newer".getBytes())))
+                                .andExpect(status().isCreated());
+
+                mockMvc.perform(get("/api/albums/" + albumId + "/media").header("If-None-Match", listingEtag))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.media.length()").value(2));
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testAlbumArchive() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Archive Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String albumId = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                .asText();
+
+                byte[] text = "compress me ".repeat(1000).getBytes();
+                BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+                ByteArrayOutputStream png = new ByteArrayOutputStream();
+                ImageIO.write(image, "png", png);
+                mockMvc.perform(multipart("/api/albums/" + albumId + "/upload/batch")
+                                .file(new MockMultipartFile("files", "notes.txt", "text/plain", text))
+                                .file(new MockMultipartFile("files", "pixel.png", "image/png", png.toByteArray())))
+                                .andExpect(status().isOk());
+
+                MvcResult started = mockMvc.perform(get("/api/albums/" + albumId + "/archive"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                MvcResult archive = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Content-Type", "application/zip"))
+                                .andReturn();
+
+                // Entries carry data descriptors, which only the central-directory reader handles
+                Path zipFile = Files.createTempFile("album", ".zip");
+                try {
+                        Files.write(zipFile, archive.getResponse().getContentAsByteArray());
+                        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+                                ZipEntry notes = zip.getEntry("notes.txt");
+                                Assertions.assertEquals(ZipEntry.DEFLATED, notes.getMethod());
+                                Assertions.assertArrayEquals(text, zip.getInputStream(notes).readAllBytes());
+
+                                ZipEntry pixel = zip.getEntry("pixel.png");
+                                Assertions.assertEquals(ZipEntry.STORED, pixel.getMethod());
+                                Assertions.assertArrayEquals(png.toByteArray(),
+                                                zip.getInputStream(pixel).readAllBytes());
+                        }
+                } finally {
+                        Files.delete(zipFile);
+                }
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testTransferMetrics() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Metrics Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String albumId = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                .asText();
+
+                double uploadedBefore = meterRegistry.counter("groupshare.transfer.bytes", "direction", "upload")
+                                .count();
+                byte[] content = "measure me".getBytes();
+                MvcResult mediaResult = mockMvc.perform(multipart("/api/albums/" + albumId + "/upload")
+                                .file(new MockMultipartFile("file", "metrics.txt", "text/plain", content)))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String mediaId = objectMapper.readTree(mediaResult.getResponse().getContentAsString())
+                                .get("mediaId").asText();
+                mockMvc.perform(get("/api/media/" + mediaId + "/download"))
+                                .andExpect(status().isOk());
+
+                for (String stage : List.of("album_lookup", "bucket_check", "duplicate_check", "detect_type",
+                                "storage_put", "db_save")) {
+                        Timer timer = meterRegistry.find("groupshare.stage")
+                                        .tags("operation", "upload", "stage", stage, "outcome", "success")
+                                        .timer();
+                        Assertions.assertNotNull(timer, stage);
+                        Assertions.assertTrue(timer.count() > 0, stage);
+                }
+                Assertions.assertEquals(uploadedBefore + content.length,
+                                meterRegistry.counter("groupshare.transfer.bytes", "direction", "upload").count());
+                Assertions.assertNotNull(meterRegistry.find("groupshare.stage")
+                                .tags("operation", "download", "stage", "storage_get").timer());
+                Assertions.assertEquals(0, meterRegistry.get("groupshare.transfer.active")
+                                .tag("direction", "upload").gauge().value());
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testRawBodyUpload() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Raw Upload Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String albumId = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                .asText();
+
+                byte[] content = "streamed without multipart".getBytes();
+                MvcResult mediaResult = mockMvc.perform(put("/api/albums/" + albumId + "/media/raw.txt")
+                                .contentType("text/plain; charset=UTF-8")
+                                .content(content))
+                                .andExpect(status().isCreated())
+                                .andExpect(jsonPath("$.fileName").value("raw.txt"))
+                                .andExpect(jsonPath("$.fileType").value("text/plain"))
+                                .andExpect(jsonPath("$.fileSize").value(content.length))
+                                .andReturn();
+                String mediaId = objectMapper.readTree(mediaResult.getResponse().getContentAsString())
+                                .get("mediaId").asText();
+
+                MvcResult download = mockMvc.perform(get("/api/media/" + mediaId + "/download"))
+                                .andExpect(status().isOk())
+                                .andReturn();
+                Assertions.assertArrayEquals(content, download.getResponse().getContentAsByteArray());
+                Assertions.assertEquals(HexFormat.of().formatHex(
+                                MessageDigest.getInstance("SHA-256").digest(content)), jdbcTemplate.queryForObject(
+                                "SELECT hash FROM media WHERE id = ?", String.class, UUID.fromString(mediaId)));
+
+                mockMvc.perform(put("/api/albums/" + albumId + "/media/raw.txt")
+                                .contentType("text/plain")
+                                .content(content))
+                                .andExpect(status().isConflict());
+                mockMvc.perform(put("/api/albums/" + albumId + "/media/tool.exe")
+                                .contentType("application/x-msdownload")
+                                .content(content))
+                                .andExpect(status().isUnsupportedMediaType());
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testConcurrentUploadsAndRecovery() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Outbox Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                UUID albumId = UUID.fromString(objectMapper.readTree(albumResult.getResponse().getContentAsString())
+                                .get("id").asText());
+
+                // The same name from many clients at once: the unique constraint lets exactly one through
+                List<Future<Integer>> statuses = new ArrayList<>();
+                try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                        for (int i = 0; i < 8; i++) {
+                                byte[] content = ("attempt " + i).getBytes();
+                                statuses.add(executor.submit(() -> mockMvc.perform(
+                                                put("/api/albums/" + albumId + "/media/same.txt")
+                                                                .contentType("text/plain")
+                                                                .content(content))
+                                                .andReturn().getResponse().getStatus()));
+                        }
+                }
+                int created = 0;
+                for (Future<Integer> status : statuses) {
+                        int code = status.get();
+                        Assertions.assertTrue(code == 201 || code == 409, "Unexpected status " + code);
+                        created += code == 201 ? 1 : 0;
+                }
+                Assertions.assertEquals(1, created);
+                Assertions.assertEquals(1, jdbcTemplate.queryForObject(
+                                "SELECT COUNT(*) FROM media WHERE album_id = ? AND status = 'COMMITTED'",
+                                Integer.class, albumId));
+                Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                                "SELECT COUNT(*) FROM upload_outbox", Integer.class));
+
+                // An upload that crashed before its object was stored is rolled back
+                Album album = albumRepository.findById(albumId).orElseThrow();
+                UUID lostId = UUID.randomUUID();
+                Timestamp longAgo = Timestamp.from(Instant.now().minus(2, ChronoUnit.DAYS));
+                jdbcTemplate.update("INSERT INTO media (id, album_id, file_name, file_type, file_size, uploaded_at, "
+                                + "hash, status) VALUES (?, ?, 'lost.txt', 'text/plain', 0, ?, '', 'PENDING')",
+                                lostId, albumId, longAgo);
+                jdbcTemplate.update("INSERT INTO upload_outbox (media_id, album_id, bucket, object_name, file_size, "
+                                + "created_at) VALUES (?, ?, ?, ?, -1, ?)",
+                                lostId, albumId, storageLayout.bucketOf(album),
+                                storageLayout.objectNameOf(album, lostId), longAgo);
+
+                mockMvc.perform(get("/api/media/" + lostId + "/download"))
+                                .andExpect(status().isNotFound());
+
+                uploadCommitter.recover();
+
+                Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                                "SELECT COUNT(*) FROM media WHERE id = ?", Integer.class, lostId));
+                Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                                "SELECT COUNT(*) FROM upload_outbox", Integer.class));
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testStorageReconciliation() {
+                // Earlier tests leave buckets behind whose rows the cleanup removed
+                storageReconciler.reconcile(true, Duration.ZERO);
+
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Reconciled Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                UUID albumId = UUID.fromString(objectMapper.readTree(albumResult.getResponse().getContentAsString())
+                                .get("id").asText());
+
+                UUID[] mediaIds = new UUID[2];
+                for (int i = 0; i < mediaIds.length; i++) {
+                        MvcResult mediaResult = mockMvc.perform(put("/api/albums/" + albumId + "/media/kept" + i + ".txt")
+                                        .contentType("text/plain")
+                                        .content(("kept " + i).getBytes()))
+                                        .andExpect(status().isCreated())
+                                        .andReturn();
+                        mediaIds[i] = UUID.fromString(objectMapper.readTree(
+                                        mediaResult.getResponse().getContentAsString()).get("mediaId").asText());
+                }
+
+                // One row loses its object, and an object appears that no row points to
+                Album album = albumRepository.findById(albumId).orElseThrow();
+                String bucketName = storageLayout.bucketOf(album);
+                storageBackend.delete(bucketName, storageLayout.objectNameOf(album, mediaIds[0]));
+                UUID orphanId = UUID.randomUUID();
+                byte[] orphan = "nobody points here".getBytes();
+                storageBackend.put(bucketName, storageLayout.objectNameOf(album, orphanId),
+                                new Media(orphanId, albumId, "orphan.txt", "text/plain", (long) orphan.length,
+                                                Instant.now(), ""),
+                                new ByteArrayInputStream(orphan));
+
+                // A bucket and a shared-bucket prefix whose album row is gone
+                UUID goneId = UUID.randomUUID();
+                String goneBucket = Helpers.getAlbumName(goneId);
+                String sharedBucket = storageLayout.getSharedBucket();
+                String gonePrefix = Helpers.getAlbumName(UUID.randomUUID()) + "/";
+                storageBackend.createBucket(goneBucket);
+                storageBackend.createBucket(sharedBucket);
+                for (String[] location : new String[][] { { goneBucket, orphanId.toString() },
+                                { sharedBucket, gonePrefix + orphanId } }) {
+                        storageBackend.put(location[0], location[1],
+                                        new Media(orphanId, goneId, "orphan.txt", "text/plain", (long) orphan.length,
+                                                        Instant.now(), ""),
+                                        new ByteArrayInputStream(orphan));
+                }
+
+                // Within the grace period nothing is touched
+                StorageReconciler.Report report = storageReconciler.reconcile(true, Duration.ofDays(1));
+                Assertions.assertEquals(0, report.getOrphanedObjects());
+                Assertions.assertEquals(0, report.getMissingObjects());
+                Assertions.assertNotNull(storageBackend.stat(goneBucket, orphanId.toString()));
+                Assertions.assertNotNull(storageBackend.stat(sharedBucket, gonePrefix + orphanId));
+
+                report = storageReconciler.reconcile(false, Duration.ZERO);
+                Assertions.assertEquals(3, report.getOrphanedObjects());
+                Assertions.assertEquals(1, report.getMissingObjects());
+                Assertions.assertEquals(0, report.getPurged());
+                Assertions.assertTrue(report.getDetachedLocations() >= 2);
+                Assertions.assertNotNull(storageBackend.stat(bucketName, storageLayout.objectNameOf(album, orphanId)));
+                Assertions.assertNotNull(storageBackend.stat(goneBucket, orphanId.toString()));
+
+                report = storageReconciler.reconcile(true, Duration.ZERO);
+                Assertions.assertEquals(4, report.getPurged());
+                Assertions.assertNull(storageBackend.stat(bucketName, storageLayout.objectNameOf(album, orphanId)));
+                Assertions.assertFalse(storageBackend.bucketExists(goneBucket));
+                Assertions.assertNull(storageBackend.stat(sharedBucket, gonePrefix + orphanId));
+                Assertions.assertEquals(List.of(mediaIds[1]), jdbcTemplate.queryForList(
+                                "SELECT id FROM media WHERE album_id = ?", UUID.class, albumId));
+                mockMvc.perform(get("/api/media/" + mediaIds[1] + "/download"))
+                                .andExpect(status().isOk());
+
+                // A completed pass leaves no checkpoint behind
+                Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                                "SELECT COUNT(*) FROM reconciler_checkpoints", Integer.class));
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testQueryPlansUseIndexes() {
+                // Enough rows that a sequential scan loses to every index on cost
+                jdbcTemplate.execute("INSERT INTO albums (id, name, created_at) "
+                                + "SELECT gen_random_uuid(), 'plan-album-' || g, now() FROM generate_series(1, 2000) g");
+                jdbcTemplate.execute("INSERT INTO media (id, album_id, file_name, file_type, file_size, uploaded_at, "
+                                + "hash, status) SELECT gen_random_uuid(), a.id, 'file-' || g || '.jpg', 'image/jpeg', "
+                                + "1024, now() - g * interval '1 second', '', 'COMMITTED' "
+                                + "FROM albums a CROSS JOIN generate_series(1, 50) g");
+                jdbcTemplate.execute("ANALYZE albums");
+                jdbcTemplate.execute("ANALYZE media");
+                UUID albumId = jdbcTemplate.queryForObject(
+                                "SELECT id FROM albums WHERE name = 'plan-album-1000'", UUID.class);
+
+                Assertions.assertTrue(indexesUsed("SELECT * FROM albums WHERE name = ? AND deleted_at IS NULL",
+                                "plan-album-1000").contains("idx_albums_name"));
+                Assertions.assertFalse(indexesUsed("SELECT * FROM media WHERE album_id = ?", albumId).isEmpty());
+                Assertions.assertTrue(indexesUsed("SELECT * FROM media WHERE album_id = ? AND file_name = ?",
+                                albumId, "file-7.jpg").contains("uk_media_album_file_name"));
+                Assertions.assertTrue(indexesUsed("SELECT m.* FROM media m JOIN albums a ON a.id = m.album_id "
+                                + "AND a.deleted_at IS NULL WHERE m.album_id = ? AND m.status = 'COMMITTED' "
+                                + "ORDER BY m.uploaded_at, m.id LIMIT ?", albumId, 100)
+                                .contains("idx_media_album_uploaded_at_id"));
+                Assertions.assertTrue(indexesUsed("SELECT m.* FROM media m JOIN albums a ON a.id = m.album_id "
+                                + "AND a.deleted_at IS NULL WHERE m.album_id = ? AND m.status = 'COMMITTED' "
+                                + "AND (m.uploaded_at, m.id) > (?, ?) ORDER BY m.uploaded_at, m.id LIMIT ?",
+                                albumId, Timestamp.from(Instant.now().minus(1, ChronoUnit.DAYS)), UUID.randomUUID(),
+                                100).contains("idx_media_album_uploaded_at_id"));
+                Assertions.assertTrue(indexesUsed("SELECT m.* FROM media m WHERE m.album_id = ? AND m.id > ? "
+                                + "ORDER BY m.id LIMIT ?", albumId, new UUID(0, 0), 1000)
+                                .contains("idx_media_album_id_id"));
+        }
+
+        /**
+         * The indexes the planner picks for {@code sql}; fails when it falls
+         * back to a sequential scan of any table.
+         */
+        private Set<String> indexesUsed(String sql, Object... args) throws Exception {
+                String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, args);
+                Set<String> indexes = new HashSet<>();
+                List<JsonNode> nodes = new ArrayList<>();
+                nodes.add(objectMapper.readTree(plan).get(0).get("Plan"));
+                while (!nodes.isEmpty()) {
+                        JsonNode node = nodes.remove(nodes.size() - 1);
+                        Assertions.assertNotEquals("Seq Scan", node.get("Node Type").asText(),
+                                        "Sequential scan of " + node.path("Relation Name").asText() + " in " + plan);
+                        if (node.has("Index Name")) {
+                                indexes.add(node.get("Index Name").asText());
+                        }
+                        node.path("Plans").forEach(nodes::add);
+                }
+                return indexes;
+        }
+
+        @Test
+        @SneakyThrows
+        void testMetadataCacheInvalidation() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Cached Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                UUID albumId = UUID.fromString(objectMapper.readTree(albumResult.getResponse().getContentAsString())
+                                .get("id").asText());
+                MvcResult mediaResult = mockMvc.perform(put("/api/albums/" + albumId + "/media/cached.txt")
+                                .contentType("text/plain")
+                                .content("cached".getBytes()))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String mediaId = objectMapper.readTree(mediaResult.getResponse().getContentAsString())
+                                .get("mediaId").asText();
+
+                // Repeated lookups are served from memory once the invalidation listener is up
+                double hitsBefore = meterRegistry.get("cache.gets").tag("cache", "media").tag("result", "hit")
+                                .functionCounter().count();
+                long deadline = System.currentTimeMillis() + 10_000;
+                while (meterRegistry.get("cache.gets").tag("cache", "media").tag("result", "hit")
+                                .functionCounter().count() == hitsBefore) {
+                        Assertions.assertTrue(System.currentTimeMillis() < deadline, "No cache hits recorded");
+                        mockMvc.perform(get("/api/media/" + mediaId + "/download"))
+                                        .andExpect(status().isOk());
+                        Thread.sleep(50);
+                }
+
+                // An upload on this node shows up in the next listing right away
+                mockMvc.perform(get("/api/albums/" + albumId + "/media"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.media.length()").value(1));
+                mockMvc.perform(put("/api/albums/" + albumId + "/media/second.txt")
+                                .contentType("text/plain")
+                                .content("second".getBytes()))
+                                .andExpect(status().isCreated());
+                mockMvc.perform(get("/api/albums/" + albumId + "/media"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.media.length()").value(2));
+
+                // Another node tombstones the album: this one keeps its cached copy until notified
+                jdbcTemplate.update("UPDATE albums SET deleted_at = now() WHERE id = ?", albumId);
+                mockMvc.perform(get("/api/media/" + mediaId + "/download"))
+                                .andExpect(status().isOk());
+                jdbcTemplate.queryForList("SELECT pg_notify('groupshare_metadata', ?)", "another-node album " + albumId);
+                deadline = System.currentTimeMillis() + 10_000;
+                while (mockMvc.perform(get("/api/media/" + mediaId + "/download")).andReturn().getResponse()
+                                .getStatus() != 404) {
+                        Assertions.assertTrue(System.currentTimeMillis() < deadline, "Invalidation not received");
+                        Thread.sleep(50);
+                }
+        }
+
+        @Test
+        @SneakyThrows
+        void testObjectDiskCache() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Hot Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String albumId = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                .asText();
+                // Text, so the sniffed type matches the declared one
+                byte[] content = "shared in the group chat\n".repeat(10_000).getBytes();
+                MvcResult mediaResult = mockMvc.perform(put("/api/albums/" + albumId + "/media/hot.txt")
+                                .contentType("text/plain")
+                                .content(content))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String mediaId = objectMapper.readTree(mediaResult.getResponse().getContentAsString())
+                                .get("mediaId").asText();
+
+                // Everyone asks at once; storage is read a single time
+                double missesBefore = meterRegistry.get("cache.gets").tag("cache", "objects").tag("result", "miss")
+                                .functionCounter().count();
+                List<Future<byte[]>> downloads = new ArrayList<>();
+                try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                        for (int i = 0; i < 32; i++) {
+                                downloads.add(executor.submit(() -> mockMvc.perform(
+                                                get("/api/media/" + mediaId + "/download"))
+                                                .andExpect(status().isOk())
+                                                .andReturn().getResponse().getContentAsByteArray()));
+                        }
+                }
+                for (Future<byte[]> download : downloads) {
+                        Assertions.assertArrayEquals(content, download.get());
+                }
+                Assertions.assertEquals(missesBefore + 1, meterRegistry.get("cache.gets").tag("cache", "objects")
+                                .tag("result", "miss").functionCounter().count());
+                Path cached = cachedCopyOf(mediaId);
+                Assertions.assertNotNull(cached);
+
+                // Ranges are cut from the local copy
+                MvcResult range = mockMvc.perform(get("/api/media/" + mediaId + "/download")
+                                .header("Range", "bytes=1000-1999"))
+                                .andExpect(status().isPartialContent())
+                                .andExpect(header().string("Content-Range", "bytes 1000-1999/" + content.length))
+                                .andReturn();
+                Assertions.assertArrayEquals(Arrays.copyOfRange(content, 1000, 2000),
+                                range.getResponse().getContentAsByteArray());
+                Assertions.assertEquals(missesBefore + 1, meterRegistry.get("cache.gets").tag("cache", "objects")
+                                .tag("result", "miss").functionCounter().count());
+
+                // A fetch right after an eviction writes its own file, which the
+                // asynchronous removal of the evicted one leaves alone
+                objectDiskCache.evict(List.of(UUID.fromString(mediaId)));
+                mockMvc.perform(get("/api/media/" + mediaId + "/download"))
+                                .andExpect(status().isOk());
+                long deadline = System.currentTimeMillis() + 10_000;
+                while (Files.exists(cached)) {
+                        Assertions.assertTrue(System.currentTimeMillis() < deadline, "Evicted copy not removed");
+                        Thread.sleep(50);
+                }
+                Path refetched = cachedCopyOf(mediaId);
+                Assertions.assertNotNull(refetched);
+                Assertions.assertNotEquals(cached, refetched);
+
+                mockMvc.perform(delete("/api/media/" + mediaId))
                                 .andExpect(status().isNoContent());
+                // The removal listener runs asynchronously
+                deadline = System.currentTimeMillis() + 10_000;
+                while (Files.exists(refetched)) {
+                        Assertions.assertTrue(System.currentTimeMillis() < deadline, "Cached copy not removed");
+                        Thread.sleep(50);
+                }
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        void testTransparentCompression() throws Exception {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Documents Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String albumId = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                .asText();
+                byte[] content = "minutes of the weekly meeting, item 1\n".repeat(5_000).getBytes();
+                MvcResult mediaResult = mockMvc.perform(put("/api/albums/" + albumId + "/media/minutes.txt")
+                                .contentType("text/plain")
+                                .content(content))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                UUID mediaId = UUID.fromString(objectMapper.readTree(mediaResult.getResponse().getContentAsString())
+                                .get("mediaId").asText());
+
+                // Size and hash describe the original; the object is a fraction of it
+                Map<String, Object> row = jdbcTemplate.queryForMap(
+                                "SELECT file_size, stored_size, codec, hash FROM media WHERE id = ?", mediaId);
+                Assertions.assertEquals("GZIP", row.get("codec"));
+                Assertions.assertEquals((long) content.length, ((Number) row.get("file_size")).longValue());
+                Assertions.assertTrue(((Number) row.get("stored_size")).longValue() < content.length / 10);
+                Assertions.assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)),
+                                row.get("hash"));
+
+                // Clients that take gzip get the stored bytes as they are
+                MvcResult encoded = mockMvc.perform(get("/api/media/" + mediaId + "/download")
+                                .header("Accept-Encoding", "gzip, deflate, br"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Content-Encoding", "gzip"))
+                                .andExpect(header().string("Vary", "Accept-Encoding"))
+                                .andExpect(header().longValue("Content-Length",
+                                                ((Number) row.get("stored_size")).longValue()))
+                                .andReturn();
+                try (GZIPInputStream decoded = new GZIPInputStream(
+                                new ByteArrayInputStream(encoded.getResponse().getContentAsByteArray()))) {
+                        Assertions.assertArrayEquals(content, decoded.readAllBytes());
+                }
+
+                // Everyone else, and every range, gets the original bytes
+                MvcResult plain = mockMvc.perform(get("/api/media/" + mediaId + "/download")
+                                .header("Accept-Encoding", "gzip;q=0"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("Content-Encoding"))
+                                .andExpect(header().longValue("Content-Length", content.length))
+                                .andReturn();
+                Assertions.assertArrayEquals(content, plain.getResponse().getContentAsByteArray());
+                MvcResult range = mockMvc.perform(get("/api/media/" + mediaId + "/download")
+                                .header("Accept-Encoding", "gzip")
+                                .header("Range", "bytes=100000-100099"))
+                                .andExpect(status().isPartialContent())
+                                .andExpect(header().string("Accept-Ranges", "bytes"))
+                                .andExpect(header().doesNotExist("Content-Encoding"))
+                                .andExpect(header().string("Content-Range", "bytes 100000-100099/" + content.length))
+                                .andReturn();
+                Assertions.assertArrayEquals(Arrays.copyOfRange(content, 100_000, 100_100),
+                                range.getResponse().getContentAsByteArray());
+
+                // Types that are read by range are stored as uploaded
+                byte[] pdf = ("%PDF-1.4\n" + "% page content\n".repeat(1_000)).getBytes();
+                MvcResult pdfResult = mockMvc.perform(put("/api/albums/" + albumId + "/media/agenda.pdf")
+                                .contentType("application/pdf")
+                                .content(pdf))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                Assertions.assertEquals("IDENTITY", jdbcTemplate.queryForObject(
+                                "SELECT codec FROM media WHERE id = ?", String.class,
+                                UUID.fromString(objectMapper.readTree(pdfResult.getResponse().getContentAsString())
+                                                .get("mediaId").asText())));
+
+                // Presigned downloads only hand out the stored gzip to clients that take it
+                mockMvc.perform(get("/api/media/" + mediaId + "/presigned-download"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.url").value("/api/media/" + mediaId + "/download"));
+                MvcResult presigned = mockMvc.perform(get("/api/media/" + mediaId + "/presigned-download")
+                                .header("Accept-Encoding", "gzip, deflate, br"))
+                                .andExpect(status().isOk())
+                                .andReturn();
+                Assertions.assertTrue(objectMapper.readTree(presigned.getResponse().getContentAsString()).get("url")
+                                .asText().contains("response-content-encoding=gzip"));
+
+                // Archives carry the original bytes too
+                MvcResult archive = mockMvc.perform(get("/api/albums/" + albumId + "/archive"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                byte[] zip = mockMvc.perform(asyncDispatch(archive))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getContentAsByteArray();
+                Path zipFile = Files.createTempFile("compressed", ".zip");
+                try {
+                        Files.write(zipFile, zip);
+                        try (ZipFile opened = new ZipFile(zipFile.toFile())) {
+                                ZipEntry entry = opened.getEntry("minutes.txt");
+                                Assertions.assertArrayEquals(content, opened.getInputStream(entry).readAllBytes());
+                        }
+                } finally {
+                        Files.deleteIfExists(zipFile);
+                }
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        void testMultipartUploadRetriesPartsAndAbortsOnFailure() throws Exception {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Large Files\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                UUID albumId = UUID.fromString(objectMapper.readTree(albumResult.getResponse().getContentAsString())
+                                .get("id").asText());
+                Album album = albumRepository.findById(albumId).orElseThrow();
+                String bucketName = storageLayout.bucketOf(album);
+
+                // An unknown length that ends inside the first part is a single put
+                byte[] small = "a few KiB of gzip output".getBytes();
+                String smallName = storageLayout.objectNameOf(album, UUID.randomUUID());
+                multipartUploadEngine.upload(bucketName, smallName, new Media(UUID.randomUUID(), albumId, "small.bin",
+                                "application/octet-stream", -1L, Instant.now(), null), new ByteArrayInputStream(small));
+                verify(multipartMinioClient, never()).createMultipartUpload(eq(bucketName), eq(smallName), any());
+                try (InputStream stored = storageBackend.get(bucketName, smallName, ByteRange.full(small.length))) {
+                        Assertions.assertArrayEquals(small, stored.readAllBytes());
+                }
+                storageBackend.delete(bucketName, smallName);
+
+                // Two full 5 MiB parts and a short last one
+                byte[] content = new byte[12 * 1024 * 1024 + 1];
+                new Random(4).nextBytes(content);
+                Media media = new Media(UUID.randomUUID(), albumId, "large.bin", "application/octet-stream", -1L,
+                                Instant.now(), null);
+                String objectName = storageLayout.objectNameOf(album, media.getId());
+
+                // A part that fails once is retried on its own
+                doThrow(new IOException("Connection reset")).doCallRealMethod().when(multipartMinioClient)
+                                .uploadPart(eq(bucketName), eq(objectName), anyString(), eq(2), any(), anyInt());
+                multipartUploadEngine.upload(bucketName, objectName, media, new ByteArrayInputStream(content));
+                verify(multipartMinioClient, times(1)).uploadPart(eq(bucketName), eq(objectName), anyString(), eq(1),
+                                any(), anyInt());
+                verify(multipartMinioClient, times(2)).uploadPart(eq(bucketName), eq(objectName), anyString(), eq(2),
+                                any(), anyInt());
+                verify(multipartMinioClient, times(1)).uploadPart(eq(bucketName), eq(objectName), anyString(), eq(3),
+                                any(), anyInt());
+                try (InputStream stored = storageBackend.get(bucketName, objectName, ByteRange.full(content.length))) {
+                        Assertions.assertArrayEquals(content, stored.readAllBytes());
+                }
+
+                // One that keeps failing aborts the upload once its attempts are used up
+                String failingName = storageLayout.objectNameOf(album, UUID.randomUUID());
+                doThrow(new IOException("Connection reset")).when(multipartMinioClient)
+                                .uploadPart(eq(bucketName), eq(failingName), anyString(), eq(3), any(), anyInt());
+                Assertions.assertThrows(IOException.class, () -> multipartUploadEngine.upload(bucketName, failingName,
+                                media, new ByteArrayInputStream(content)));
+                verify(multipartMinioClient, times(3)).uploadPart(eq(bucketName), eq(failingName), anyString(), eq(3),
+                                any(), anyInt());
+                verify(multipartMinioClient).abortMultipartUpload(eq(bucketName), eq(failingName), anyString());
+                Assertions.assertNull(storageBackend.stat(bucketName, failingName));
+
+                storageBackend.delete(bucketName, objectName);
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        void testUploadSessionChunkOrderAndSizes() throws Exception {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Chunked Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String albumId = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                .asText();
+                MvcResult sessionResult = mockMvc.perform(post("/api/albums/" + albumId + "/sessions")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"fileName\":\"log.txt\",\"fileType\":\"text/plain\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String sessionId = objectMapper.readTree(sessionResult.getResponse().getContentAsString())
+                                .get("sessionId").asText();
+
+                // Two chunks at the 5 MiB minimum and a short last one
+                int minChunk = 5 * 1024 * 1024;
+                byte[] content = "line of a long server log\n".repeat(minChunk * 2 / 26 + 100).getBytes();
+                byte[] first = Arrays.copyOfRange(content, 0, minChunk);
+                byte[] second = Arrays.copyOfRange(content, minChunk, 2 * minChunk);
+                byte[] last = Arrays.copyOfRange(content, 2 * minChunk, content.length);
+
+                // Chunks arrive in any order
+                mockMvc.perform(put("/api/sessions/" + sessionId + "/chunks/3").content(last))
+                                .andExpect(status().isOk());
+                mockMvc.perform(put("/api/sessions/" + sessionId + "/chunks/1").content(first))
+                                .andExpect(status().isOk());
+
+                // A gap keeps the session open
+                mockMvc.perform(post("/api/sessions/" + sessionId + "/complete"))
+                                .andExpect(status().isConflict());
+
+                // Short chunks are only accepted at the end
+                mockMvc.perform(put("/api/sessions/" + sessionId + "/chunks/2").content(last))
+                                .andExpect(status().isBadRequest());
+                mockMvc.perform(put("/api/sessions/" + sessionId + "/chunks/4").content(last))
+                                .andExpect(status().isBadRequest());
+
+                mockMvc.perform(put("/api/sessions/" + sessionId + "/chunks/2").content(second))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/sessions/" + sessionId))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.chunks.length()").value(3));
+                MvcResult mediaResult = mockMvc.perform(post("/api/sessions/" + sessionId + "/complete"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                UUID mediaId = UUID.fromString(objectMapper.readTree(mediaResult.getResponse().getContentAsString())
+                                .get("mediaId").asText());
+
+                // Stored with the same SHA-256 as any other upload
+                Assertions.assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)),
+                                jdbcTemplate.queryForObject("SELECT hash FROM media WHERE id = ?", String.class,
+                                                mediaId));
+                MvcResult download = mockMvc.perform(get("/api/media/" + mediaId + "/download"))
+                                .andExpect(status().isOk())
+                                .andReturn();
+                Assertions.assertArrayEquals(content, download.getResponse().getContentAsByteArray());
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testPreviewFallbacks() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Preview Fallback Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String albumId = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                .asText();
+
+                // Types without a preview never stream the original
+                MvcResult textResult = mockMvc.perform(put("/api/albums/" + albumId + "/media/notes.txt")
+                                .contentType("text/plain")
+                                .content("not an image".getBytes()))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                String textId = objectMapper.readTree(textResult.getResponse().getContentAsString())
+                                .get("mediaId").asText();
+                mockMvc.perform(get("/api/media/" + textId + "/preview"))
+                                .andExpect(status().isNotFound());
+
+                // An image that cannot be decoded is tried once and then served as is
+                byte[] broken = "fakeimagecontent".getBytes();
+                MvcResult brokenResult = mockMvc.perform(multipart("/api/albums/" + albumId + "/upload")
+                                .file(new MockMultipartFile("file", "broken.png", "image/png", broken)))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                UUID brokenId = UUID.fromString(objectMapper.readTree(brokenResult.getResponse().getContentAsString())
+                                .get("mediaId").asText());
+                for (int attempt = 0; attempt < 50 && !previewGenerator.hasFailed(brokenId); attempt++) {
+                        Thread.sleep(100);
+                }
+                Assertions.assertTrue(previewGenerator.hasFailed(brokenId));
+
+                MvcResult preview = mockMvc.perform(get("/api/media/" + brokenId + "/preview"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Content-Type", "image/png"))
+                                .andReturn();
+                Assertions.assertArrayEquals(broken, preview.getResponse().getContentAsByteArray());
+                Assertions.assertTrue(previewGenerator.hasFailed(brokenId));
+
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testMediaSelectionArchive() {
+                String[] albumIds = new String[2];
+                String[] mediaIds = new String[2];
+                for (int i = 0; i < albumIds.length; i++) {
+                        MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .content("{\"name\":\"Selection Album " + i + "\"}"))
+                                        .andExpect(status().isCreated())
+                                        .andReturn();
+                        albumIds[i] = objectMapper.readTree(albumResult.getResponse().getContentAsString()).get("id")
+                                        .asText();
+                        MvcResult mediaResult = mockMvc.perform(put("/api/albums/" + albumIds[i] + "/media/same.txt")
+                                        .contentType("text/plain")
+                                        .content(("from album " + i).getBytes()))
+                                        .andExpect(status().isCreated())
+                                        .andReturn();
+                        mediaIds[i] = objectMapper.readTree(mediaResult.getResponse().getContentAsString())
+                                        .get("mediaId").asText();
+                }
+
+                mockMvc.perform(post("/api/media/archive")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"mediaIds\":[]}"))
+                                .andExpect(status().isBadRequest());
+                mockMvc.perform(post("/api/media/archive")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"mediaIds\":[\"" + UUID.randomUUID() + "\"]}"))
+                                .andExpect(status().isNotFound());
+
+                // Duplicates and unknown ids are dropped, clashing names across albums are numbered
+                MvcResult started = mockMvc.perform(post("/api/media/archive")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(Map.of("mediaIds", List.of(mediaIds[1],
+                                                mediaIds[0], mediaIds[1], UUID.randomUUID().toString())))))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                MvcResult archive = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Content-Type", "application/zip"))
+                                .andReturn();
+
+                Path zipFile = Files.createTempFile("selection", ".zip");
+                try {
+                        Files.write(zipFile, archive.getResponse().getContentAsByteArray());
+                        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+                                Assertions.assertEquals(2, zip.size());
+                                Assertions.assertArrayEquals("from album 1".getBytes(),
+                                                zip.getInputStream(zip.getEntry("same.txt")).readAllBytes());
+                                Assertions.assertArrayEquals("from album 0".getBytes(),
+                                                zip.getInputStream(zip.getEntry("same (1).txt")).readAllBytes());
+                        }
+                } finally {
+                        Files.delete(zipFile);
+                }
+
+                for (String albumId : albumIds) {
+                        mockMvc.perform(delete("/api/albums/" + albumId))
+                                        .andExpect(status().isAccepted());
+                }
         }
 }
@@ -0,0 +1,99 @@
+package com.groupshare.integrationTests;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.groupshare.configuration.AbstractTestContainers;
+
+import lombok.SneakyThrows;
+
+@SpringBootTest
+@Import(AbstractTestContainers.class)
+class SchemaMigrationTests {
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private Flyway flyway;
+
+        @Value("${spring.datasource.url}")
+        private String url;
+
+        @Value("${spring.datasource.username}")
+        private String username;
+
+        @Value("${spring.datasource.password}")
+        private String password;
+
+        @Test
+        @SneakyThrows
+        void testMigratesDatabaseCreatedByDdlAuto() {
+                String database = "legacy_" + UUID.randomUUID().toString().replace("-", "");
+                jdbcTemplate.execute("CREATE DATABASE " + database);
+                DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                                url.replaceFirst("/[^/?]+(\\?|$)", "/" + database + "$1"), username, password);
+                JdbcTemplate legacy = new JdbcTemplate(dataSource);
+
+                // What ddl-auto created before the migrations, with rows in it
+                legacy.execute("CREATE TABLE albums (id uuid NOT NULL, name varchar(255) NOT NULL, "
+                                + "created_at timestamp(6) with time zone NOT NULL, PRIMARY KEY (id))");
+                legacy.execute("CREATE TABLE media (id uuid NOT NULL, album_id uuid NOT NULL, "
+                                + "file_name varchar(255) NOT NULL, file_type varchar(255) NOT NULL, "
+                                + "file_size bigint NOT NULL, uploaded_at timestamp(6) with time zone NOT NULL, "
+                                + "hash varchar(255) NOT NULL, PRIMARY KEY (id))");
+                UUID albumId = UUID.randomUUID();
+                UUID first = UUID.randomUUID();
+                UUID duplicate = UUID.randomUUID();
+                Timestamp now = Timestamp.from(Instant.now());
+                legacy.update("INSERT INTO albums (id, name, created_at) VALUES (?, 'Old Album', ?)", albumId, now);
+                legacy.update("INSERT INTO media VALUES (?, ?, 'photo.jpg', 'image/jpeg', 4, ?, 'hash')",
+                                first, albumId, now);
+                legacy.update("INSERT INTO media VALUES (?, ?, 'photo.jpg', 'image/jpeg', 4, ?, 'hash')",
+                                duplicate, albumId, Timestamp.from(now.toInstant().plusSeconds(1)));
+
+                // Same settings as the application's own Flyway
+                Flyway.configure().configuration(flyway.getConfiguration()).dataSource(dataSource).load().migrate();
+
+                Assertions.assertEquals("1", legacy.queryForObject(
+                                "SELECT version FROM flyway_schema_history WHERE type = 'BASELINE'", String.class));
+                for (String table : List.of("upload_sessions", "presigned_uploads", "upload_outbox",
+                                "reconciler_checkpoints")) {
+                        Assertions.assertEquals(1, legacy.queryForObject(
+                                        "SELECT count(*) FROM information_schema.tables WHERE table_name = ?",
+                                        Integer.class, table), table);
+                }
+                Assertions.assertEquals(5, legacy.queryForObject("SELECT count(*) FROM information_schema.columns "
+                                + "WHERE table_name = 'albums' AND column_name IN "
+                                + "('bucket', 'changed_at', 'deleted_at', 'purged_at', 'purged_objects')",
+                                Integer.class));
+
+                // Existing rows are committed, stored as uploaded and keep unique names
+                Map<String, Object> kept = legacy.queryForMap(
+                                "SELECT file_name, status, codec FROM media WHERE id = ?", first);
+                Assertions.assertEquals("photo.jpg", kept.get("file_name"));
+                Assertions.assertEquals("COMMITTED", kept.get("status"));
+                Assertions.assertEquals("IDENTITY", kept.get("codec"));
+                Assertions.assertEquals("photo (" + duplicate + ").jpg", legacy.queryForObject(
+                                "SELECT file_name FROM media WHERE id = ?", String.class, duplicate));
+
+                // A second run finds nothing left to do
+                Assertions.assertEquals(0, Flyway.configure().configuration(flyway.getConfiguration())
+                                .dataSource(dataSource).load().migrate().migrationsExecuted);
+
+                jdbcTemplate.execute("DROP DATABASE " + database + " WITH (FORCE)");
+        }
+}
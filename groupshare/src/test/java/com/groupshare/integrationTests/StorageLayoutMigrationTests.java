@@ -0,0 +1,168 @@
+package com.groupshare.integrationTests;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.groupshare.Entitys.Media;
+import com.groupshare.Entitys.MediaRepository;
+import com.groupshare.Services.MetadataCache;
+import com.groupshare.Services.StorageLayout;
+import com.groupshare.Services.StorageLayoutMigrator;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Utils.Helpers;
+import com.groupshare.configuration.AbstractTestContainers;
+
+import lombok.SneakyThrows;
+
+// The migration only runs when the tests call it
+@SpringBootTest(properties = { "minio.layout=shared", "minio.layout-migration.enabled=true",
+                "minio.layout-migration.interval=PT24H", "minio.layout-migration.grace-period=PT0S" })
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Import(AbstractTestContainers.class)
+class StorageLayoutMigrationTests {
+
+        @Autowired
+        private MockMvc mockMvc;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private MediaRepository mediaRepository;
+
+        @Autowired
+        private MetadataCache metadataCache;
+
+        @Autowired
+        private StorageLayout storageLayout;
+
+        @Autowired
+        private StorageLayoutMigrator storageLayoutMigrator;
+
+        @Autowired
+        private StorageBackend storageBackend;
+
+        private final ObjectMapper objectMapper = new ObjectMapper();
+
+        @AfterEach
+        void cleanup() throws Exception {
+                jdbcTemplate.execute("DELETE FROM upload_sessions");
+                jdbcTemplate.execute("DELETE FROM presigned_uploads");
+                jdbcTemplate.execute("DELETE FROM upload_outbox");
+                jdbcTemplate.execute("DELETE FROM media");
+                jdbcTemplate.execute("DELETE FROM albums");
+        }
+
+        @Test
+        @SneakyThrows
+        void testMigrationCopiesFlipsAndCleansUp() {
+                MvcResult albumResult = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Legacy Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                UUID albumId = UUID.fromString(objectMapper.readTree(albumResult.getResponse().getContentAsString())
+                                .get("id").asText());
+
+                // Turn it into an album from before the shared layout
+                String legacyBucket = Helpers.getAlbumName(albumId);
+                String sharedBucket = storageLayout.getSharedBucket();
+                String prefix = legacyBucket + "/";
+                jdbcTemplate.update("UPDATE albums SET bucket = NULL WHERE id = ?", albumId);
+                metadataCache.albumChanged(albumId);
+                storageBackend.createBucket(legacyBucket);
+
+                UUID kept = upload(albumId, "a.txt");
+                UUID deletedBefore = upload(albumId, "b.txt");
+                UUID deletedAfter = upload(albumId, "c.txt");
+                Assertions.assertNotNull(storageBackend.stat(legacyBucket, kept.toString()));
+
+                mockMvc.perform(delete("/api/media/" + deletedBefore))
+                                .andExpect(status().isNoContent());
+
+                // An object without a row is left to the reconciler
+                UUID orphanId = UUID.randomUUID();
+                putObject(legacyBucket, orphanId.toString(), albumId, orphanId);
+
+                // Copy and flip
+                storageLayoutMigrator.migrate();
+                Assertions.assertEquals(sharedBucket, jdbcTemplate.queryForObject(
+                                "SELECT bucket FROM albums WHERE id = ?", String.class, albumId));
+                Assertions.assertNotNull(storageBackend.stat(sharedBucket, prefix + kept));
+                Assertions.assertNotNull(storageBackend.stat(sharedBucket, prefix + deletedAfter));
+                Assertions.assertNull(storageBackend.stat(sharedBucket, prefix + deletedBefore));
+                Assertions.assertNull(storageBackend.stat(sharedBucket, prefix + orphanId));
+
+                // Deletes during the grace period clear both locations
+                mockMvc.perform(delete("/api/media/" + deletedAfter))
+                                .andExpect(status().isNoContent());
+                Assertions.assertNull(storageBackend.stat(sharedBucket, prefix + deletedAfter));
+                Assertions.assertNull(storageBackend.stat(legacyBucket, deletedAfter.toString()));
+
+                // A write that still went to the legacy bucket follows the switch
+                UUID followed = UUID.randomUUID();
+                putObject(legacyBucket, followed.toString(), albumId, followed);
+                storageLayout.followSwitch(albumId, legacyBucket, followed.toString());
+                Assertions.assertNotNull(storageBackend.stat(sharedBucket, prefix + followed));
+
+                // A row committed against the legacy bucket is picked up by the final copy
+                UUID late = UUID.randomUUID();
+                putObject(legacyBucket, late.toString(), albumId, late);
+                mediaRepository.save(new Media(late, albumId, "late.txt", "text/plain", 4L, Instant.now(), ""));
+
+                // Final copy and cleanup
+                storageLayoutMigrator.migrate();
+                Assertions.assertFalse(storageBackend.bucketExists(legacyBucket));
+                Assertions.assertNotNull(storageBackend.stat(sharedBucket, prefix + late));
+                Assertions.assertNull(storageBackend.stat(sharedBucket, prefix + deletedAfter));
+                Assertions.assertNull(storageBackend.stat(sharedBucket, prefix + orphanId));
+
+                MvcResult download = mockMvc.perform(get("/api/media/" + kept + "/download"))
+                                .andExpect(status().isOk())
+                                .andReturn();
+                Assertions.assertArrayEquals("content of a.txt".getBytes(),
+                                download.getResponse().getContentAsByteArray());
+        }
+
+        @SneakyThrows
+        private UUID upload(UUID albumId, String fileName) {
+                MvcResult result = mockMvc.perform(put("/api/albums/" + albumId + "/media/" + fileName)
+                                .contentType("text/plain")
+                                .content(("content of " + fileName).getBytes()))
+                                .andExpect(status().isCreated())
+                                .andReturn();
+                return UUID.fromString(objectMapper.readTree(result.getResponse().getContentAsString())
+                                .get("mediaId").asText());
+        }
+
+        @SneakyThrows
+        private void putObject(String bucketName, String objectName, UUID albumId, UUID mediaId) {
+                byte[] data = "late".getBytes();
+                storageBackend.put(bucketName, objectName,
+                                new Media(mediaId, albumId, mediaId + ".txt", "text/plain", (long) data.length,
+                                                Instant.now(), ""),
+                                new ByteArrayInputStream(data));
+        }
+}
@@ -7,16 +7,35 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 
+import com.groupshare.Utils.UploadPipeline;
+import com.groupshare.Utils.ZipStreamWriter;
 import com.groupshare.configuration.AbstractTestContainers;
 
 import lombok.SneakyThrows;
@@ -79,7 +98,7 @@ public class LogicTests {
 
                 // Clean up
                 mockMvc.perform(delete("/api/albums/" + albumId))
-                                .andExpect(status().isNoContent());
+                                .andExpect(status().isAccepted());
         }
 
         @Test
@@ -104,7 +123,7 @@ public class LogicTests {
 
                 // Clean up
                 mockMvc.perform(delete("/api/albums/" + albumId1))
-                                .andExpect(status().isNoContent());
+                                .andExpect(status().isAccepted());
         }
 
         @Test
@@ -131,7 +150,7 @@ public class LogicTests {
 
                 // Clean up
                 mockMvc.perform(delete("/api/albums/" + albumId))
-                                .andExpect(status().isNoContent());
+                                .andExpect(status().isAccepted());
         }
 
         @Test
@@ -179,7 +198,7 @@ public class LogicTests {
 
                 // Clean up
                 mockMvc.perform(delete("/api/albums/" + albumId))
-                                .andExpect(status().isNoContent());
+                                .andExpect(status().isAccepted());
         }
 
         @Test
@@ -203,11 +222,254 @@ public class LogicTests {
 
                 // Delete album
                 mockMvc.perform(delete("/api/albums/" + albumId))
-                                .andExpect(status().isNoContent());
+                                .andExpect(status().isAccepted());
 
                 // Verify album media no longer accessible
                 mockMvc.perform(get("/api/albums/" + albumId + "/media"))
                                 .andExpect(status().isOk())
                                 .andExpect(jsonPath("$.media").isEmpty());
         }
+
+        @Test
+        @SneakyThrows
+        void testListMediaIsPaginatedWithCursor() {
+                String albumResponse = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Paged Album\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn()
+                                .getResponse()
+                                .getContentAsString();
+
+                String albumId = albumResponse.replaceAll(".*\"id\":\"([^\"]+)\".*", "$1");
+
+                for (String name : new String[] { "p1.jpg", "p2.jpg", "p3.jpg" }) {
+                        MockMultipartFile file = new MockMultipartFile("file", name, "image/jpeg", name.getBytes());
+                        mockMvc.perform(multipart("/api/albums/" + albumId + "/upload").file(file))
+                                        .andExpect(status().isCreated());
+                }
+
+                String firstPage = mockMvc.perform(get("/api/albums/" + albumId + "/media").param("limit", "2"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.media.length()").value(2))
+                                .andExpect(jsonPath("$.media[0].fileName").value("p1.jpg"))
+                                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                                .andReturn()
+                                .getResponse()
+                                .getContentAsString();
+
+                String cursor = firstPage.replaceAll(".*\"nextCursor\":\"([^\"]+)\".*", "$1");
+
+                mockMvc.perform(get("/api/albums/" + albumId + "/media").param("limit", "2").param("cursor", cursor))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.media.length()").value(1))
+                                .andExpect(jsonPath("$.media[0].fileName").value("p3.jpg"))
+                                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+                mockMvc.perform(get("/api/albums/" + albumId + "/media").param("cursor", "not-a-cursor"))
+                                .andExpect(status().isBadRequest());
+
+                // Clean up
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testBatchDeleteMedia() {
+                String albumResponse = mockMvc.perform(post("/api/albums")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Batch Delete\"}"))
+                                .andExpect(status().isCreated())
+                                .andReturn()
+                                .getResponse()
+                                .getContentAsString();
+
+                String albumId = albumResponse.replaceAll(".*\"id\":\"([^\"]+)\".*", "$1");
+
+                String[] mediaIds = new String[2];
+                for (int i = 0; i < mediaIds.length; i++) {
+                        MockMultipartFile file = new MockMultipartFile("file", "d" + i + ".jpg", "image/jpeg",
+                                        ("d" + i).getBytes());
+                        String mediaResponse = mockMvc.perform(multipart("/api/albums/" + albumId + "/upload")
+                                        .file(file))
+                                        .andExpect(status().isCreated())
+                                        .andReturn()
+                                        .getResponse()
+                                        .getContentAsString();
+                        mediaIds[i] = mediaResponse.replaceAll(".*\"mediaId\":\"([^\"]+)\".*", "$1");
+                }
+
+                String unknownId = "00000000-0000-0000-0000-000000000000";
+                mockMvc.perform(post("/api/media/batch-delete")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"mediaIds\":[\"" + mediaIds[0] + "\",\"" + mediaIds[1] + "\",\""
+                                                + unknownId + "\"]}"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.deleted.length()").value(2))
+                                .andExpect(jsonPath("$.notFound[0]").value(unknownId))
+                                .andExpect(jsonPath("$.failed").isEmpty());
+
+                mockMvc.perform(get("/api/albums/" + albumId + "/media"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.media").isEmpty());
+
+                mockMvc.perform(get("/api/media/" + mediaIds[0] + "/download"))
+                                .andExpect(status().isNotFound());
+
+                // Clean up
+                mockMvc.perform(delete("/api/albums/" + albumId))
+                                .andExpect(status().isAccepted());
+        }
+
+        @Test
+        @SneakyThrows
+        void testZipStreamWriterSwitchesToZip64AboveEntryLimit() {
+                // One past what the classic end record can count
+                int entryCount = 0xFFFF + 1;
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (ZipStreamWriter zip = new ZipStreamWriter(out)) {
+                        for (int i = 0; i < entryCount; i++) {
+                                zip.writeEntry("e" + i, Instant.EPOCH, 0, false, InputStream.nullInputStream());
+                        }
+                        zip.finish();
+                }
+
+                Path zipFile = Files.createTempFile("entries", ".zip");
+                try {
+                        Files.write(zipFile, out.toByteArray());
+                        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+                                Assertions.assertEquals(entryCount, zip.size());
+                                Assertions.assertNotNull(zip.getEntry("e" + (entryCount - 1)));
+                        }
+                } finally {
+                        Files.delete(zipFile);
+                }
+        }
+
+        @Test
+        @SneakyThrows
+        void testZipStreamWriterSwitchesToZip64AboveSizeLimit() {
+                long size = 0xFFFFFFFFL + 1;
+                TailSink sink = new TailSink();
+                try (ZipStreamWriter zip = new ZipStreamWriter(sink)) {
+                        zip.writeEntry("big.bin", Instant.EPOCH, size, false, new ZeroInputStream(size));
+                        zip.finish();
+                }
+
+                Assertions.assertTrue(sink.count > size);
+                // ZIP64 end record (56 bytes), its locator (20) and the classic end record (22)
+                ByteBuffer tail = sink.tail(98);
+                Assertions.assertEquals(0x06064b50, tail.getInt(0));
+                Assertions.assertEquals(1, tail.getLong(24));
+                Assertions.assertTrue(tail.getLong(48) > 0xFFFFFFFFL);
+                Assertions.assertEquals(0x07064b50, tail.getInt(56));
+                Assertions.assertEquals(0x06054b50, tail.getInt(76));
+                Assertions.assertEquals(0xFFFFFFFF, tail.getInt(92));
+        }
+
+        @Test
+        @SneakyThrows
+        void testZipStreamWriterLeavesFailedArchiveIncomplete() {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (ZipStreamWriter zip = new ZipStreamWriter(out)) {
+                        zip.writeEntry("ok.txt", Instant.EPOCH, 2, false, new ByteArrayInputStream("ok".getBytes()));
+                        InputStream failing = new SequenceInputStream(new ByteArrayInputStream("half".getBytes()),
+                                        new InputStream() {
+                                                @Override
+                                                public int read() throws IOException {
+                                                        throw new IOException("storage went away");
+                                                }
+                                        });
+                        Assertions.assertThrows(IOException.class,
+                                        () -> zip.writeEntry("broken.txt", Instant.EPOCH, 8, false, failing));
+                }
+
+                // Without a central directory the archive cannot pass for a complete one
+                Path zipFile = Files.createTempFile("failed", ".zip");
+                try {
+                        Files.write(zipFile, out.toByteArray());
+                        Assertions.assertThrows(ZipException.class, () -> new ZipFile(zipFile.toFile()).close());
+                } finally {
+                        Files.delete(zipFile);
+                }
+        }
+
+        @Test
+        @SneakyThrows
+        void testUploadPipelineStopsReadingOnceAborted() {
+                byte[] content = new byte[256 * 1024];
+                try (UploadPipeline pipeline = new UploadPipeline(new ByteArrayInputStream(content))) {
+                        InputStream stream = pipeline.stream();
+                        Assertions.assertEquals(1024, stream.readNBytes(1024).length);
+
+                        // The reservation failing on another thread stops the put at its next read
+                        DuplicateKeyException duplicate = new DuplicateKeyException("uk_media_album_file_name");
+                        pipeline.abort(duplicate);
+                        IOException aborted = Assertions.assertThrows(IOException.class,
+                                        () -> stream.read(new byte[1024]));
+                        Assertions.assertSame(duplicate, aborted.getCause());
+                        Assertions.assertThrows(IOException.class, stream::read);
+                        Assertions.assertEquals(1024, pipeline.size());
+                }
+        }
+
+        /** Counts what is written and keeps only the last bytes, so a huge archive costs no memory. */
+        private static class TailSink extends OutputStream {
+
+                private final byte[] tail = new byte[128];
+                private long count;
+
+                @Override
+                public void write(int b) {
+                        tail[(int) (count++ % tail.length)] = (byte) b;
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) {
+                        int skipped = Math.max(0, length - tail.length);
+                        count += skipped;
+                        for (int i = offset + skipped; i < offset + length; i++) {
+                                write(bytes[i]);
+                        }
+                }
+
+                ByteBuffer tail(int length) {
+                        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+                        for (long i = count - length; i < count; i++) {
+                                buffer.put(tail[(int) (i % tail.length)]);
+                        }
+                        return buffer.flip();
+                }
+        }
+
+        /** {@code size} zero bytes without holding them. */
+        private static class ZeroInputStream extends InputStream {
+
+                private long remaining;
+
+                ZeroInputStream(long size) {
+                        this.remaining = size;
+                }
+
+                @Override
+                public int read() {
+                        if (remaining == 0) {
+                                return -1;
+                        }
+                        remaining--;
+                        return 0;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                        if (remaining == 0) {
+                                return -1;
+                        }
+                        int read = (int) Math.min(length, remaining);
+                        Arrays.fill(buffer, offset, offset + read, (byte) 0);
+                        remaining -= read;
+                        return read;
+                }
+        }
 }
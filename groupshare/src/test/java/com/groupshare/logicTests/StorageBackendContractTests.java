@@ -0,0 +1,174 @@
+package com.groupshare.logicTests;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.groupshare.Entitys.Media;
+import com.groupshare.Storage.InMemoryStorageBackend;
+import com.groupshare.Storage.LocalFilesystemStorageBackend;
+import com.groupshare.Storage.StorageBackend;
+import com.groupshare.Storage.StoredObject;
+import com.groupshare.Utils.ByteRange;
+
+import lombok.SneakyThrows;
+
+/**
+ * The behaviour every {@link StorageBackend} has to share with the MinIO one,
+ * run against the backends that need no container.
+ */
+class StorageBackendContractTests {
+
+        private static final String BUCKET = "contract-bucket";
+
+        @TempDir
+        static Path root;
+
+        @SneakyThrows
+        static Stream<StorageBackend> backends() {
+                LocalFilesystemStorageBackend local = new LocalFilesystemStorageBackend();
+                ReflectionTestUtils.setField(local, "root", root.resolve(UUID.randomUUID().toString()));
+                local.init();
+                return Stream.of(local, new InMemoryStorageBackend());
+        }
+
+        @ParameterizedTest
+        @MethodSource("backends")
+        @SneakyThrows
+        void testPutGetAndStat(StorageBackend backend) {
+                backend.createBucket(BUCKET);
+                Assertions.assertTrue(backend.bucketExists(BUCKET));
+                Assertions.assertFalse(backend.bucketExists("missing-bucket"));
+
+                byte[] data = "hello storage".getBytes();
+                put(backend, "album/object", data, data.length);
+                try (InputStream in = backend.get(BUCKET, "album/object", ByteRange.full(data.length))) {
+                        Assertions.assertArrayEquals(data, in.readAllBytes());
+                }
+                StoredObject stat = backend.stat(BUCKET, "album/object");
+                Assertions.assertEquals("album/object", stat.getObjectName());
+                Assertions.assertEquals(data.length, stat.getSize());
+                Assertions.assertNull(backend.stat(BUCKET, "album/missing"));
+
+                // Unknown length is read to the end
+                put(backend, "unknown-length", data, -1);
+                Assertions.assertEquals(data.length, backend.stat(BUCKET, "unknown-length").getSize());
+
+                // A short stream is rejected and leaves nothing behind
+                Assertions.assertThrows(Exception.class, () -> put(backend, "short", data, data.length + 1));
+                Assertions.assertNull(backend.stat(BUCKET, "short"));
+
+                Assertions.assertThrows(Exception.class, () -> put(backend, "x", data, data.length, "missing-bucket"));
+        }
+
+        @ParameterizedTest
+        @MethodSource("backends")
+        @SneakyThrows
+        void testRangedGet(StorageBackend backend) {
+                backend.createBucket(BUCKET);
+                byte[] data = "0123456789".getBytes();
+                put(backend, "digits", data, data.length);
+
+                try (InputStream in = backend.get(BUCKET, "digits", new ByteRange(3, 4, data.length, true))) {
+                        Assertions.assertArrayEquals("3456".getBytes(), in.readAllBytes());
+                }
+                try (InputStream in = backend.get(BUCKET, "digits", new ByteRange(8, 2, data.length, true))) {
+                        Assertions.assertArrayEquals("89".getBytes(), in.readAllBytes());
+                }
+                Assertions.assertThrows(Exception.class,
+                                () -> backend.get(BUCKET, "missing", ByteRange.full(1)).close());
+        }
+
+        @ParameterizedTest
+        @MethodSource("backends")
+        @SneakyThrows
+        void testListCopyAndDelete(StorageBackend backend) {
+                backend.createBucket(BUCKET);
+                byte[] data = "x".getBytes();
+                for (String key : List.of("b/2", "a/1", "b/1", "b/previews/1.jpg", "c")) {
+                        put(backend, key, data, data.length);
+                }
+
+                Assertions.assertEquals(List.of("b/1", "b/2", "b/previews/1.jpg"), names(backend.list(BUCKET, "b/")));
+                Assertions.assertEquals(List.of("b/previews/1.jpg"), names(backend.list(BUCKET, "b/", "b/2")));
+                Assertions.assertEquals(5, names(backend.list(BUCKET, "")).size());
+                Assertions.assertEquals(List.of("a/", "b/"), backend.listPrefixes(BUCKET));
+
+                backend.createBucket("contract-target");
+                Assertions.assertEquals(List.of(BUCKET, "contract-target"), backend.listBuckets());
+                backend.copy(BUCKET, "a/1", "contract-target", "prefix/a/1");
+                try (InputStream in = backend.get("contract-target", "prefix/a/1", ByteRange.full(data.length))) {
+                        Assertions.assertArrayEquals(data, in.readAllBytes());
+                }
+                Assertions.assertThrows(Exception.class,
+                                () -> backend.copy(BUCKET, "missing", "contract-target", "missing"));
+
+                backend.delete(BUCKET, "c");
+                backend.delete(BUCKET, "c");
+                Assertions.assertNull(backend.stat(BUCKET, "c"));
+
+                // Missing keys are not failures, like an S3 multi-object delete
+                Assertions.assertEquals(List.of(), backend.deleteAll(BUCKET, List.of("b/1", "b/2", "b/missing")));
+                Assertions.assertEquals(List.of("a/1", "b/previews/1.jpg"), names(backend.list(BUCKET, "")));
+        }
+
+        @ParameterizedTest
+        @MethodSource("backends")
+        @SneakyThrows
+        void testRemoveBucketOnlyWhenEmpty(StorageBackend backend) {
+                backend.createBucket(BUCKET);
+                byte[] data = "x".getBytes();
+                put(backend, "nested/key", data, data.length);
+
+                Assertions.assertThrows(Exception.class, () -> backend.removeBucket(BUCKET));
+                Assertions.assertTrue(backend.bucketExists(BUCKET));
+                Assertions.assertNotNull(backend.stat(BUCKET, "nested/key"));
+
+                backend.delete(BUCKET, "nested/key");
+                backend.removeBucket(BUCKET);
+                Assertions.assertFalse(backend.bucketExists(BUCKET));
+                backend.removeBucket(BUCKET);
+        }
+
+        @ParameterizedTest
+        @MethodSource("backends")
+        void testPresignIsUnsupported(StorageBackend backend) {
+                Assertions.assertFalse(backend.supportsMultipartUploads());
+                Assertions.assertThrows(UnsupportedOperationException.class,
+                                () -> backend.presignPut(BUCKET, "key", Duration.ofMinutes(1)));
+                Assertions.assertThrows(UnsupportedOperationException.class,
+                                () -> backend.presignGet(BUCKET, "key", Duration.ofMinutes(1), "image/jpeg",
+                                                "attachment", null));
+        }
+
+        private static void put(StorageBackend backend, String objectName, byte[] data, long declaredSize)
+                        throws Exception {
+                put(backend, objectName, data, declaredSize, BUCKET);
+        }
+
+        private static void put(StorageBackend backend, String objectName, byte[] data, long declaredSize,
+                        String bucketName) throws Exception {
+                backend.put(bucketName, objectName, new Media(UUID.randomUUID(), UUID.randomUUID(), objectName,
+                                "text/plain", declaredSize, Instant.now(), ""), new ByteArrayInputStream(data));
+        }
+
+        private static List<String> names(Iterable<StoredObject> objects) {
+                List<String> names = new ArrayList<>();
+                for (StoredObject object : objects) {
+                        names.add(object.getObjectName());
+                }
+                return names;
+        }
+}
@@ -4,36 +4,112 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.groupshare.configuration.AbstractTestContainers;
 
-import lombok.SneakyThrows;
-
-@SpringBootTest
+/**
+ * Load harness against the real HTTP server. Every client is a virtual
+ * thread that creates its own album and then runs a weighted mix of burst
+ * uploads, listings, range downloads and deletes until the run ends.
+ * Latencies go into one HdrHistogram per scenario; the build only fails when
+ * a scenario's p99 or the error rate exceeds its configured SLO.
+ *
+ * <p>Tuned through system properties, e.g. {@code ./gradlew test
+ * -Pgroupshare.load.clients=200 -Pgroupshare.load.duration=PT2M}. Storage is
+ * the MinIO container by default; {@code -Pgroupshare.storage.backend=memory}
+ * runs against the in-process stand-in instead.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureMockMvc
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 @Import(AbstractTestContainers.class)
 public class PerformanceTests {
 
+    private static final String BOUNDARY = "groupshare-load-boundary";
+
+    @LocalServerPort
+    private int port;
+
     @Autowired
     private MockMvc mockMvc;
 
+    @Value("${groupshare.load.clients:32}")
+    private int clients;
+
+    @Value("${groupshare.load.duration:PT20S}")
+    private Duration duration;
+
+    // Latencies recorded during warm-up are thrown away
+    @Value("${groupshare.load.warmup:PT5S}")
+    private Duration warmup;
+
+    @Value("${groupshare.load.file-size:65536}")
+    private int fileSize;
+
+    @Value("${groupshare.load.burst-size:5}")
+    private int burstSize;
+
+    @Value("${groupshare.load.slo.create-album-p99:PT1S}")
+    private Duration createAlbumSlo;
+
+    @Value("${groupshare.load.slo.upload-p99:PT2S}")
+    private Duration uploadSlo;
+
+    @Value("${groupshare.load.slo.list-p99:PT0.5S}")
+    private Duration listSlo;
+
+    @Value("${groupshare.load.slo.range-download-p99:PT0.5S}")
+    private Duration rangeDownloadSlo;
+
+    @Value("${groupshare.load.slo.delete-p99:PT1S}")
+    private Duration deleteSlo;
+
+    @Value("${groupshare.load.slo.max-error-rate:0.01}")
+    private double maxErrorRate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
     private String albumId;
 
     @BeforeEach
@@ -54,31 +130,103 @@ public class PerformanceTests {
         if (albumId != null) {
             mockMvc.perform(
                     MockMvcRequestBuilders.delete("/api/albums/" + albumId))
-                    .andExpect(status().isNoContent());
+                    .andExpect(status().isAccepted());
         }
     }
 
     @Test
-    @SneakyThrows
-    void testBulkUploadPerformance() {
-        int fileCount = 20;
-        List<Long> uploadTimes = new ArrayList<>();
-        for (int i = 0; i < fileCount; i++) {
-            MockMultipartFile file = new MockMultipartFile(
-                    "file",
-                    "perf_test_no_" + i + ".txt",
-                    "text/plain",
-                    ("performance file " + i).getBytes());
-
-            long start = System.currentTimeMillis();
-            mockMvc.perform(multipart("/api/albums/" + albumId + "/upload").file(file))
-                    .andExpect(status().isCreated());
-            long end = System.currentTimeMillis();
-            uploadTimes.add(end - start);
+    void testConcurrentLoad() throws Exception {
+        Map<String, Scenario> scenarios = new LinkedHashMap<>();
+        scenarios.put("create_album", new Scenario(createAlbumSlo));
+        scenarios.put("upload", new Scenario(uploadSlo));
+        scenarios.put("list", new Scenario(listSlo));
+        scenarios.put("range_download", new Scenario(rangeDownloadSlo));
+        scenarios.put("delete", new Scenario(deleteSlo));
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                int client = i;
+                executor.submit(() -> runClient(client, scenarios, measureFrom, end));
+            }
+        }
+        double seconds = duration.toNanos() / 1e9;
+
+        long requests = 0;
+        long errors = 0;
+        List<String> violations = new ArrayList<>();
+        StringBuilder report = new StringBuilder(String.format("%nLoad test: %d clients, %s measured%n", clients,
+                duration));
+        report.append(String.format("%-16s %9s %9s %9s %9s %9s %9s %7s%n", "scenario", "count", "req/s", "p50 ms",
+                "p99 ms", "p999 ms", "max ms", "errors"));
+        for (Map.Entry<String, Scenario> entry : scenarios.entrySet()) {
+            Scenario scenario = entry.getValue();
+            Histogram latencies = scenario.latencies;
+            requests += latencies.getTotalCount() + scenario.errors.get();
+            errors += scenario.errors.get();
+            report.append(String.format("%-16s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %7d%n", entry.getKey(),
+                    latencies.getTotalCount(), latencies.getTotalCount() / seconds,
+                    millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+                    millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue()),
+                    scenario.errors.get()));
+
+            long p99 = latencies.getValueAtPercentile(99);
+            if (latencies.getTotalCount() > 0 && p99 > scenario.slo.toNanos() / 1000) {
+                violations.add(entry.getKey() + " p99 " + millis(p99) + " ms exceeds " + scenario.slo.toMillis()
+                        + " ms");
+            }
+        }
+        double errorRate = requests == 0 ? 0 : (double) errors / requests;
+        report.append(String.format("total %d requests, %.1f req/s, error rate %.4f%n", requests,
+                requests / seconds, errorRate));
+        System.out.println(report);
+
+        if (errorRate > maxErrorRate) {
+            violations.add("error rate " + errorRate + " exceeds " + maxErrorRate);
+        }
+        Assertions.assertTrue(requests > 0, "No requests completed");
+        Assertions.assertTrue(violations.isEmpty(), "SLO violations: " + violations);
+    }
+
+    /**
+     * Holds more stalled uploads open than Tomcat has platform threads; with
+     * requests on virtual threads the server still answers other clients.
+     */
+    @Test
+    void testSlowClientsDoNotExhaustThreads() throws Exception {
+        int slowClients = 400;
+        List<Socket> sockets = new ArrayList<>(slowClients);
+        try {
+            for (int i = 0; i < slowClients; i++) {
+                Socket socket = new Socket("localhost", port);
+                OutputStream out = socket.getOutputStream();
+                // Announce a large body and send only its first bytes
+                out.write(("POST /api/albums/" + albumId + "/upload HTTP/1.1\r\n"
+                        + "Host: localhost\r\n"
+                        + "Content-Type: multipart/form-data; boundary=" + BOUNDARY + "\r\n"
+                        + "Content-Length: 104857600\r\n\r\n"
+                        + "--" + BOUNDARY + "\r\n"
+                        + "Content-Disposition: form-data; name=\"file\"; filename=\"slow_" + i + ".txt\"\r\n"
+                        + "Content-Type: text/plain\r\n\r\n"
+                        + "slow").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                sockets.add(socket);
+            }
+
+            HttpResponse<String> response = httpClient.send(
+                    HttpRequest.newBuilder(uri("/api/albums/" + albumId + "/media"))
+                            .timeout(Duration.ofSeconds(10))
+                            .GET()
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(200, response.statusCode());
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
         }
-        double avg = uploadTimes.stream().mapToLong(Long::longValue).average().orElse(0);
-        System.out.println("Average upload time for " + fileCount + " files: " + avg + " ms");
-        Assertions.assertTrue(avg < 2000, "Average upload time is too high: " + avg + " ms");
     }
 
     @Test
@@ -110,4 +258,116 @@ public class PerformanceTests {
         System.out.println("Large file upload time: " + duration + " ms");
         Assertions.assertTrue(duration < 60000, "Large file upload took too long: " + duration + " ms");
     }
+
+    private void runClient(int client, Map<String, Scenario> scenarios, long measureFrom, long end) {
+        List<String> mediaIds = new ArrayList<>();
+        int uploaded = 0;
+
+        // Every client creates its album at once, during warm-up; measured anyway as a burst
+        HttpResponse<String> album = call(scenarios.get("create_album"), 0, 201,
+                HttpRequest.newBuilder(uri("/api/albums"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"name\":\"load-" + client + "-" + UUID.randomUUID() + "\"}")));
+        if (album == null) {
+            return;
+        }
+        String clientAlbumId = album.body().replaceAll(".*\"id\":\"([^\"]+)\".*", "$1");
+
+        try {
+            while (System.nanoTime() < end) {
+                int roll = ThreadLocalRandom.current().nextInt(100);
+                if (roll < 40 || mediaIds.isEmpty()) {
+                    for (int i = 0; i < burstSize && System.nanoTime() < end; i++) {
+                        HttpResponse<String> response = call(scenarios.get("upload"), measureFrom, 201,
+                                HttpRequest.newBuilder(uri("/api/albums/" + clientAlbumId + "/upload"))
+                                        .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                                        .POST(HttpRequest.BodyPublishers.ofByteArray(
+                                                multipartBody("load_" + client + "_" + uploaded++ + ".txt"))));
+                        if (response != null) {
+                            mediaIds.add(objectMapper.readTree(response.body()).get("mediaId").asText());
+                        }
+                    }
+                } else if (roll < 65) {
+                    call(scenarios.get("list"), measureFrom, 200,
+                            HttpRequest.newBuilder(uri("/api/albums/" + clientAlbumId + "/media?limit=100")).GET());
+                } else if (roll < 90) {
+                    String mediaId = mediaIds.get(ThreadLocalRandom.current().nextInt(mediaIds.size()));
+                    long from = ThreadLocalRandom.current().nextLong(Math.max(1, fileSize - 1024));
+                    call(scenarios.get("range_download"), measureFrom, 206,
+                            HttpRequest.newBuilder(uri("/api/media/" + mediaId + "/download"))
+                                    .header("Range", "bytes=" + from + "-" + (from + 1023))
+                                    .GET());
+                } else {
+                    String mediaId = mediaIds.remove(ThreadLocalRandom.current().nextInt(mediaIds.size()));
+                    call(scenarios.get("delete"), measureFrom, 204,
+                            HttpRequest.newBuilder(uri("/api/media/" + mediaId)).DELETE());
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("Load client " + client + " stopped: " + e.getMessage());
+        } finally {
+            call(null, measureFrom, 202,
+                    HttpRequest.newBuilder(uri("/api/albums/" + clientAlbumId)).DELETE());
+        }
+    }
+
+    /**
+     * Sends the request and records its latency in microseconds. Returns null
+     * when the request failed or got an unexpected status.
+     */
+    private HttpResponse<String> call(Scenario scenario, long measureFrom, int expectedStatus,
+            HttpRequest.Builder request) {
+        long start = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request.timeout(Duration.ofSeconds(60)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+        } catch (Exception e) {
+            response = null;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        boolean ok = response != null && response.statusCode() == expectedStatus;
+        if (scenario != null && start >= measureFrom) {
+            if (ok) {
+                scenario.latencies.recordValue(elapsed / 1000);
+            } else {
+                scenario.errors.incrementAndGet();
+            }
+        }
+        return ok ? response : null;
+    }
+
+    private byte[] multipartBody(String fileName) throws Exception {
+        byte[] content = new byte[fileSize];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + ThreadLocalRandom.current().nextInt(26));
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(fileSize + 256);
+        body.write(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(content);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static class Scenario {
+        final Duration slo;
+        final Histogram latencies = new ConcurrentHistogram(3);
+        final AtomicLong errors = new AtomicLong();
+
+        Scenario(Duration slo) {
+            this.slo = slo;
+        }
+    }
 }